@@ -59,6 +59,20 @@ public class OpenSimplexNoise {
             return noise2_UnskewedBase(seed, xs, ys);
         }
 
+        /**
+         * 2D OpenSimplex2S/SuperSimplex noise, standard lattice orientation, sampled on a whole grid at once.
+         * out[i * ys.length + j] = noise2(seed, xs[i], ys[j]), bit for bit.
+         */
+        public static void noise2(long seed, double[] xs, double[] ys, float[] out) {
+            int n = 0;
+            for (double x : xs) {
+                for (double y : ys) {
+                    double s = SKEW_2D * (x + y);
+                    out[n++] = noise2_UnskewedBase(seed, x + s, y + s);
+                }
+            }
+        }
+
         /**
          * 2D OpenSimplex2S/SuperSimplex noise, with Y pointing down the main diagonal.
          * Might be better for a 2D sandbox style game, where Y is vertical.
@@ -247,6 +261,24 @@ public class OpenSimplexNoise {
             return noise3_UnrotatedBase(seed, xr, yr, zr);
         }
 
+        /**
+         * 3D OpenSimplex2S/SuperSimplex noise, fallback rotation option, sampled on a whole grid at once.
+         * out[(i * ys.length + j) * zs.length + k] = noise3_Fallback(seed, xs[i], ys[j], zs[k]), bit for bit.
+         * The partial sum x + y of the rotation is shared by each row along Z.
+         */
+        public static void noise3_Fallback(long seed, double[] xs, double[] ys, double[] zs, float[] out) {
+            int n = 0;
+            for (double x : xs) {
+                for (double y : ys) {
+                    double xy = x + y;
+                    for (double z : zs) {
+                        double r = FALLBACK_ROTATE3 * (xy + z);
+                        out[n++] = noise3_UnrotatedBase(seed, r - x, r - y, r - z);
+                    }
+                }
+            }
+        }
+
         /**
          * Generate overlapping cubic lattices for 3D Re-oriented BCC noise.
          * Lookup table implementation inspired by DigitalShadow.
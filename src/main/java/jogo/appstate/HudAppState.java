@@ -14,6 +14,7 @@ import jogo.crafting.Recipe;
 import jogo.gameobject.character.Player;
 import jogo.gameobject.item.ItemStack;
 import jogo.system.HighScoreManager;
+import jogo.system.SaveIndex;
 import jogo.voxel.VoxelPalette;
 
 import java.util.ArrayList;
@@ -184,7 +185,7 @@ public class HudAppState extends BaseAppState {
     }
 
     // Mostrar menu de load
-    public void showLoadMenu(List<String> saves) {
+    public void showLoadMenu(List<SaveIndex.Entry> saves) {
         StringBuilder sb = new StringBuilder("=== MENU DE LOAD ===\n\n");
         if (saves.isEmpty()) {
             sb.append("Nenhum save encontrado.\nJoga e carrega em 'M' para salvar.");
@@ -152,13 +152,11 @@ public class InteractionAppState extends BaseAppState {
                     else if (blockId == jogo.voxel.VoxelPalette.LANTERN_OFF_ID) {
                         // Se está apagada, substitui pelo bloco ACESO
                         vw.setBlock(cell.x, cell.y, cell.z, jogo.voxel.VoxelPalette.LANTERN_ON_ID);
-                        vw.rebuildDirtyChunks(world.getPhysicsSpace());
                         playSound("Sounds/Click.wav");
                     }
                     else if (blockId == jogo.voxel.VoxelPalette.LANTERN_ON_ID) {
                         // Se está acesa, substitui pelo bloco APAGADO
                         vw.setBlock(cell.x, cell.y, cell.z, jogo.voxel.VoxelPalette.LANTERN_OFF_ID);
-                        vw.rebuildDirtyChunks(world.getPhysicsSpace());
                         playSound("Sounds/Click.wav");
                     }
                 });
@@ -204,7 +202,6 @@ public class InteractionAppState extends BaseAppState {
 
                     // Coloca o bloco no mundo
                     vw.setBlock(x, y, z, heldId);
-                    vw.rebuildDirtyChunks(world.getPhysicsSpace());
                     playerState.getPlayer().consumeHeldItem();
                     playerState.refreshPhysics();
                 });
@@ -105,7 +105,6 @@ public class MiniGameAppState extends BaseAppState {
         if (id == VoxelPalette.TARGET_ID) {
             // Acertou!
             vw.setBlock(x, y, z, VoxelPalette.AIR_ID); // Remove o alvo
-            vw.rebuildDirtyChunks(worldState.getPhysicsSpace());
             targetsHit++; // Incrementa o contador de alvos acertados
             System.out.println("Alvo destruído! " + targetsHit + "/" + TOTAL_TARGETS);
             return true;
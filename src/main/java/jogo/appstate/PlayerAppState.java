@@ -16,12 +16,16 @@ import com.jme3.scene.Node;
 import jogo.gameobject.character.Player;
 import jogo.gameobject.item.DroppedItem;
 import jogo.gameobject.item.ItemStack;
+import jogo.system.AutosaveScheduler;
+import jogo.system.EditJournal;
 import jogo.system.GameSaveData;
 import jogo.system.HighScoreManager;
 import jogo.system.SaveManager;
 import jogo.voxel.VoxelPalette;
 import jogo.voxel.VoxelWorld;
+import jogo.voxel.WorldSnapshot;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -65,6 +69,15 @@ public class PlayerAppState extends BaseAppState {
     private AudioNode audioHurt;
 
     private String currentSaveFileName;
+    // Autosave incremental: de 30 em 30 s, no máximo ~64 KB de chunks por frame
+    private final AutosaveScheduler autosave = new AutosaveScheduler(30f, 64 * 1024);
+    private volatile boolean autosaveFailed = false; // escrito pela thread de escrita dos saves
+    // Depois de um patch falhado tenta-se um só save completo (sem HUD); só volta a tentar depois de um patch correr bem
+    private volatile boolean autosaveRetried = false;
+    // Edições de blocos entre saves completos; passado este tamanho é compactado num save completo
+    private final EditJournal journal = new EditJournal();
+    private static final long JOURNAL_COMPACT_BYTES = 256 * 1024;
+    private float playTime = 0f; // segundos de jogo deste mundo (vai para o save e para o menu de load)
 
 
     public Player getPlayer() {
@@ -118,6 +131,10 @@ public class PlayerAppState extends BaseAppState {
 
         this.currentSaveFileName = SaveManager.generateUniqueSaveName();// Novo jogo por defeito
         System.out.println("Novo jogo iniciado. Ficheiro de destino: " + this.currentSaveFileName);
+        // O nome só conta os .dat: um diário de um jogo anterior com o mesmo nome que nunca foi gravado é lixo.
+        // O diário deste jogo só abre com o primeiro save (performSave)
+        EditJournal.deleteAllSegments(this.currentSaveFileName);
+        if (world != null && world.getVoxelWorld() != null) world.getVoxelWorld().setEditListener(journal::record);
 
         // Spawn inicial
         respawn();
@@ -140,6 +157,7 @@ public class PlayerAppState extends BaseAppState {
     // Atualização por frame
     @Override
     public void update(float tpf) {
+        playTime += tpf;
 
         if (input.consumeLeaderboardRequest()) {
             if (hud != null) {
@@ -159,6 +177,13 @@ public class PlayerAppState extends BaseAppState {
         if (input.consumeSaveRequest()) {
             performSave(this.currentSaveFileName); // Por agora salvamos sempre no "save1"
         }
+        if (autosave.tick(tpf)) {
+            performAutosave(this.currentSaveFileName);
+        }
+        journal.update(tpf);
+        if (journal.getSegmentBytes() > JOURNAL_COMPACT_BYTES && SaveManager.saveExists(this.currentSaveFileName)) {
+            performSave(this.currentSaveFileName, false); // compacta o diário sem mexer no HUD
+        }
 
         // --- LÓGICA DE CARREGAR (Tecla L) ---
         if (input.consumeLoadMenuRequest()) {
@@ -167,7 +192,7 @@ public class PlayerAppState extends BaseAppState {
                 if (hud.isLoadMenuVisible()) {
                     hud.hideLoadMenu();
                 } else {
-                    hud.showLoadMenu(jogo.system.SaveManager.getSaveList());
+                    hud.showLoadMenu(SaveManager.getSaveInfos());
                 }
             }
         }
@@ -313,37 +338,118 @@ public class PlayerAppState extends BaseAppState {
 
     // --- SISTEMA DE SAVE/LOAD ---
     private void performSave(String saveName) {
-        if (hud != null) hud.showSubtitle("A Gravar...", 2.0f);
+        performSave(saveName, true);
+    }
+
+    private void performSave(String saveName, boolean showHud) {
+        if (showHud && hud != null) hud.showSubtitle("A Gravar...", 2.0f);
 
         GameSaveData data = new GameSaveData(); // novo objeto de dados
+        fillGameState(data);
 
+        // Mundo: snapshot O(1) por chunk; as cópias e a escrita são feitas na thread de escrita dos saves
+        WorldSnapshot snapshot = null;
+        // As edições até aqui ficam no save; o diário continua num segmento novo
+        if (!journal.isOpen()) journal.open(saveName); // primeiro save deste jogo
+        int segment = journal.rotate();
+        if (world != null && world.getVoxelWorld() != null) {
+            snapshot = world.getVoxelWorld().snapshotForSave();
+        }
+        autosave.reset();
+        autosaveFailed = false;
+        if (showHud) autosaveRetried = false; // gravado pelo jogador: uma nova tentativa se o próximo patch falhar
+
+        // Gravar no disco
+        SaveManager.saveGame(saveName, data, snapshot, ok -> {
+            if (ok) {
+                try {
+                    EditJournal.deleteSegmentsBefore(saveName, segment);
+                } catch (IOException e) {
+                    e.printStackTrace(); // ficam para o próximo save; repeti-los no load não faz mal
+                }
+            } else {
+                // Sem .dat no disco os segmentos não teriam a que ser aplicados
+                getApplication().enqueue(() -> {
+                    if (!SaveManager.saveExists(saveName) && saveName.equals(currentSaveFileName)) journal.abandon();
+                });
+            }
+            if (showHud) showSubtitleLater(ok ? "Jogo gravado!" : "Erro ao gravar!");
+        });
+    }
+
+    // Autosave: acrescenta ao save atual só o estado do jogador e os chunks alterados desde o último save.
+    // Enquanto o jogador não gravar (tecla M) não há save base e o autosave não cria nenhum.
+    private void performAutosave(String saveName) {
+        if (!SaveManager.saveExists(saveName)) return;
+        if (autosaveFailed) {
+            if (!autosaveRetried) {
+                autosaveRetried = true;
+                performSave(saveName, false); // o último patch falhou: um save completo, uma vez
+            }
+            return;
+        }
+        GameSaveData data = new GameSaveData();
+        fillGameState(data);
+        WorldSnapshot snapshot = null;
+        if (world != null && world.getVoxelWorld() != null) {
+            snapshot = world.getVoxelWorld().snapshotChangedForSave(autosave.getByteBudget());
+            autosave.setPendingChunks(snapshot.getPendingChunks());
+        }
+
+        SaveManager.appendPatch(saveName, data, snapshot, ok -> {
+            if (ok) {
+                autosaveRetried = false;
+                return;
+            }
+            autosaveFailed = true;
+            showSubtitleLater("Erro no autosave!");
+        });
+    }
+
+    // Chamado pela thread de escrita dos saves: o HUD só pode ser mexido na thread de update
+    private void showSubtitleLater(String text) {
+        getApplication().enqueue(() -> {
+            if (hud != null) hud.showSubtitle(text, 2.0f);
+        });
+    }
+
+    // Cópia do inventário: os arrays e os ItemStack do Player continuam a mudar enquanto o save é escrito
+    private static ItemStack[] copyStacks(ItemStack[] stacks) {
+        if (stacks == null) return null;
+        ItemStack[] copy = new ItemStack[stacks.length];
+        for (int i = 0; i < stacks.length; i++) {
+            if (stacks[i] != null) copy[i] = new ItemStack(stacks[i].getId(), stacks[i].getAmount());
+        }
+        return copy;
+    }
+
+    // Jogador, NPCs e minijogo (tudo menos os chunks), copiados para o save poder ser escrito noutra thread
+    private void fillGameState(GameSaveData data) {
         // 1. Jogador (posição, rotação, inventário)
         Vector3f pos = playerNode.getWorldTranslation();
         data.playerX = pos.x; data.playerY = pos.y; data.playerZ = pos.z;
         data.rotPitch = this.pitch; data.rotYaw = this.yaw;
         data.health = player.getHealth();
-        data.hotbar = player.getHotbar();
-        data.mainInventory = player.getMainInventory();
-
-        // 2. Mundo
+        data.playTime = playTime;
+        data.savedAt = System.currentTimeMillis();
         if (world != null && world.getVoxelWorld() != null) {
-            world.getVoxelWorld().saveChunksToData(data);
+            VoxelWorld vw = world.getVoxelWorld();
+            data.worldSizeX = vw.getSizeX(); data.worldSizeY = vw.getSizeY(); data.worldSizeZ = vw.getSizeZ();
         }
+        data.hotbar = copyStacks(player.getHotbar());
+        data.mainInventory = copyStacks(player.getMainInventory());
 
-        // 3. Salvar NPCs
+        // 2. Salvar NPCs
         NpcAppState npcState = getState(NpcAppState.class);
         if (npcState != null) {
             npcState.saveNpcsToData(data);
         }
 
-        // 4. MINIJOGO
+        // 3. MINIJOGO
         MiniGameAppState miniGame = getState(MiniGameAppState.class);
         if (miniGame != null) {
             miniGame.saveStateToData(data);
         }
-
-        // Gravar no disco
-        SaveManager.saveGame(saveName, data);
     }
 
     private void performLoad(String saveName) {
@@ -356,12 +462,17 @@ public class PlayerAppState extends BaseAppState {
         }
 
         this.currentSaveFileName = saveName;
+        autosave.reset();
+        autosaveFailed = false;
+        autosaveRetried = false;
+        journal.open(saveName); // os segmentos do save ficam até ao próximo save completo
 
         // 1. Jogador (Update Posição e Inventário) ...
         characterControl.warp(new Vector3f(data.playerX, data.playerY, data.playerZ));
         this.yaw = data.rotYaw; // horizontal
         this.pitch = data.rotPitch; // vertical
         player.setHealth(data.health);
+        this.playTime = data.playTime;
         if (hud != null) hud.setHealth(player.getHealth());
 
         if(data.hotbar != null) System.arraycopy(data.hotbar, 0, player.getHotbar(), 0, 9);
@@ -369,8 +480,10 @@ public class PlayerAppState extends BaseAppState {
 
         // 2. Mundo
         if (world != null && world.getVoxelWorld() != null) {
-            world.getVoxelWorld().loadChunksFromData(data);
-            world.getVoxelWorld().rebuildDirtyChunks(world.getPhysicsSpace());
+            world.getVoxelWorld().loadChunksFromData(data); // os chunks carregados entram na fila de reconstrução
+            // Os chunks e as colunas geradas à volta do jogador já; o resto vem nos próximos frames
+            world.getVoxelWorld().streamPendingChunks(new Vector3f(data.playerX, data.playerY, data.playerZ), 27);
+            world.getVoxelWorld().generatePendingColumns(new Vector3f(data.playerX, data.playerY, data.playerZ), 9);
         }
 
         // 3. NPCs
@@ -509,6 +622,8 @@ public class PlayerAppState extends BaseAppState {
     }
 
 
+    public AutosaveScheduler getAutosave() { return autosave; }
+
     public WorldAppState getWorld() {
         return world;
     }
@@ -516,6 +631,8 @@ public class PlayerAppState extends BaseAppState {
 
     @Override
     protected void cleanup(Application app) {
+        journal.flush();
+        SaveManager.awaitPendingWrites(); // não perder um save que ainda esteja a ser escrito
         if (playerNode != null) {
             if (characterControl != null) {
                 physicsSpace.remove(characterControl);
@@ -9,10 +9,10 @@ import com.jme3.bullet.collision.shapes.BoxCollisionShape;
 import com.jme3.bullet.control.RigidBodyControl;
 import com.jme3.light.AmbientLight;
 import com.jme3.light.DirectionalLight;
-import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
+import com.jme3.renderer.Caps;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
 import com.jme3.scene.shape.Box;
@@ -44,6 +44,10 @@ public class WorldAppState extends BaseAppState {
     // Nó do mundo e VoxelWorld
     private Node worldNode;
     private VoxelWorld voxelWorld;
+    // Armazenamento das células dos chunks; OFF_HEAP para mundos muito grandes (ver OffHeapChunkStore)
+    private VoxelWorld.Storage storage = VoxelWorld.Storage.HEAP;
+    // Mundo sem limites: as colunas de chunks à volta do jogador são carregadas e descarregadas enquanto ele anda
+    private boolean unbounded = false;
     private com.jme3.math.Vector3f spawnPosition;
 
     // Lista de Itens soltos no chão
@@ -69,8 +73,15 @@ public class WorldAppState extends BaseAppState {
         rootNode.attachChild(worldNode);
 
         // 1. Criar o VoxelWorld
-        voxelWorld = new VoxelWorld(assetManager, 256, 64, 256);
-        voxelWorld.generateLayers();
+        voxelWorld = unbounded ? VoxelWorld.unbounded(assetManager, 64, storage) : new VoxelWorld(assetManager, 256, 64, 256, storage);
+        // Uma Geometry por chunk para os blocos opacos quando a placa suporta texture arrays
+        voxelWorld.setTextureArrayMode(app.getRenderer().getCaps().contains(Caps.TextureArray));
+        // Chunks sem acessos há 30 s ficam comprimidos em memória; acima de 16 MB expandidos também os menos usados
+        voxelWorld.getColdChunks().setColdSeconds(30f);
+        voxelWorld.getColdChunks().setMemoryBudget(16L * 1024 * 1024);
+        // Terreno gerado a pedido: já só as colunas de chunks à volta do centro (onde fica o spawn), o resto nos próximos frames
+        voxelWorld.generateLazily();
+        voxelWorld.generatePendingColumns(new Vector3f(voxelWorld.getSizeX() / 2f, 0, voxelWorld.getSizeZ() / 2f), 25);
         voxelWorld.buildMeshes();
         voxelWorld.clearAllDirtyFlags();
 
@@ -99,12 +110,33 @@ public class WorldAppState extends BaseAppState {
     }
 
     public VoxelWorld getVoxelWorld() { return voxelWorld; }
+
+    // Só tem efeito antes de o estado ser inicializado (o mundo é criado em initialize)
+    public void setStorage(VoxelWorld.Storage storage) { this.storage = storage; }
+    public void setUnbounded(boolean unbounded) { this.unbounded = unbounded; }
     public PhysicsSpace getPhysicsSpace() { return physicsSpace; }
     public Node getRootNode() { return rootNode; } // Helper para o TheRockBlock
     public Node getWorldNode() { return worldNode; }
 
     @Override
     public void update(float tpf) {
+        // Processar a fila de chunks sujos (com limite de tempo por frame)
+        Vector3f playerPos = null;
+        if (playerAppState != null && playerAppState.getPlayer() != null) {
+            var p = playerAppState.getPlayer().getPosition();
+            playerPos = new Vector3f(p.x, p.y, p.z);
+        }
+        // Chunks de um save ainda nas regiões: alguns por frame, os mais próximos do jogador primeiro
+        if (voxelWorld.getPendingLoadCount() > 0) voxelWorld.streamPendingChunks(playerPos, 4);
+        // Colunas de chunks ainda por gerar: duas por frame, as mais próximas do jogador primeiro
+        if (voxelWorld.getPendingColumnCount() > 0) voxelWorld.generatePendingColumns(playerPos, 2);
+        // Sem limites: colunas a carregar e a descarregar à volta do jogador (com limite por frame)
+        if (voxelWorld.isUnbounded()) voxelWorld.updateStreaming(playerPos);
+        if (voxelWorld.rebuildDirtyChunks(physicsSpace, cam.getLocation(), playerPos) > 0 && playerAppState != null) {
+            playerAppState.refreshPhysics(); // o jogador pode estar em cima de um chunk que mudou
+        }
+        voxelWorld.updateColdChunks(tpf);
+
         // Atualizar itens no chão
         for (DroppedItem item : droppedItems) {
             item.update(tpf);
@@ -198,9 +230,7 @@ public class WorldAppState extends BaseAppState {
         if (stack == null || stack.getAmount() <= 0) return;
 
         Geometry geom = new Geometry("ItemDrop", new Box(0.15f, 0.15f, 0.15f));
-        var blockType = voxelWorld.getPalette().get(stack.getId());
-        Material mat = blockType.getMaterial(assetManager);
-        geom.setMaterial(mat);
+        geom.setMaterial(voxelWorld.getMaterials().get(stack.getId())); // material partilhado com os chunks
 
         Node itemNode = new Node("ItemNode");
         itemNode.attachChild(geom);
@@ -230,6 +260,7 @@ public class WorldAppState extends BaseAppState {
 
     @Override
     protected void cleanup(Application app) {
+        if (voxelWorld != null) voxelWorld.shutdown();
         if (worldNode != null) {
             worldNode.depthFirstTraversal(spatial -> {
                 RigidBodyControl rbc = spatial.getControl(RigidBodyControl.class);
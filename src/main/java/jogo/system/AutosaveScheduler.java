@@ -0,0 +1,44 @@
+package jogo.system;
+
+/**
+ * Decide quando corre o autosave incremental (ver PlayerAppState.performAutosave).
+ * De intervalSeconds em intervalSeconds escreve-se um patch com o estado do jogador e os chunks alterados
+ * desde o último save; cada patch leva no máximo cerca de byteBudget bytes de chunks, e o que não couber
+ * sai nos frames seguintes, para o autosave nunca pesar num frame só.
+ */
+public class AutosaveScheduler {
+    private float intervalSeconds;
+    private int byteBudget;
+
+    private float timer = 0f;
+    private boolean flushing = false; // ainda há chunks alterados de um autosave anterior
+
+    public AutosaveScheduler(float intervalSeconds, int byteBudget) {
+        this.intervalSeconds = intervalSeconds;
+        this.byteBudget = byteBudget;
+    }
+
+    // True se neste frame deve ser escrito um patch
+    public boolean tick(float tpf) {
+        if (intervalSeconds <= 0f) return false; // autosave desligado
+        timer += tpf;
+        if (!flushing && timer < intervalSeconds) return false;
+        if (SaveManager.isSaving()) return false; // espera pelo save completo em curso
+        timer = 0f;
+        return true;
+    }
+
+    // Chamado depois de cada patch com o número de chunks alterados que ficaram por escrever
+    public void setPendingChunks(int pending) { flushing = pending > 0; }
+
+    // Um save completo (ou um load) deixa o ficheiro em dia: recomeça a contagem
+    public void reset() {
+        timer = 0f;
+        flushing = false;
+    }
+
+    public float getIntervalSeconds() { return intervalSeconds; }
+    public void setIntervalSeconds(float intervalSeconds) { this.intervalSeconds = intervalSeconds; }
+    public int getByteBudget() { return byteBudget; }
+    public void setByteBudget(int byteBudget) { this.byteBudget = byteBudget; }
+}
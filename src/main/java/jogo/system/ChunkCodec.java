@@ -0,0 +1,105 @@
+package jogo.system;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressão dos payloads dos chunks nas regiões: cada chunk é comprimido à parte com Deflater (sem cabeçalho
+ * zlib), por isso os chunks de um save são comprimidos e descomprimidos em paralelo num ForkJoinPool.
+ * Nível 0 = sem compressão (só a codificação em runs de SaveFormat.encodeChunk).
+ * Os Deflater/Inflater são reutilizados por thread (cada um tem memória nativa).
+ */
+public final class ChunkCodec {
+    // Nível por defeito: o mais rápido; ver SaveCompressionBenchmark para a troca tempo/tamanho
+    public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+
+    private static volatile int level = DEFAULT_LEVEL;
+
+    private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(DEFAULT_LEVEL, true));
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private ChunkCodec() {}
+
+    public static int getLevel() { return level; }
+
+    public static void setLevel(int newLevel) {
+        if (newLevel < Deflater.NO_COMPRESSION || newLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Nível de compressão inválido: " + newLevel);
+        }
+        level = newLevel;
+    }
+
+    // Comprime com o nível atual; null se o nível for 0 ou se não ganhar nada (fica o payload sem compressão)
+    public static byte[] deflate(byte[] raw) {
+        int currentLevel = level;
+        if (currentLevel == Deflater.NO_COMPRESSION) return null;
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setLevel(currentLevel);
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] out = new byte[raw.length];
+        int n = 0;
+        while (!deflater.finished()) {
+            if (n == out.length) return null; // maior que o original
+            n += deflater.deflate(out, n, out.length - n);
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // Descomprime os bytes restantes de in para um array de rawLength bytes
+    public static ByteBuffer inflate(ByteBuffer in, int rawLength) throws IOException {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(in);
+        byte[] out = new byte[rawLength];
+        try {
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(out, n, rawLength - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += read;
+            }
+            if (n != rawLength) throw new IOException("Chunk comprimido truncado");
+        } catch (DataFormatException e) {
+            throw new IOException("Chunk comprimido corrompido", e);
+        }
+        return ByteBuffer.wrap(out);
+    }
+
+    public interface Job<T> {
+        T run() throws IOException;
+    }
+
+    // Corre as tarefas no pool e devolve os resultados pela mesma ordem
+    public static <T> List<T> runAll(List<Job<T>> jobs) throws IOException {
+        List<T> results = new ArrayList<>(jobs.size());
+        if (jobs.size() <= 1) {
+            for (Job<T> job : jobs) results.add(job.run());
+            return results;
+        }
+        List<Callable<T>> tasks = new ArrayList<>(jobs.size());
+        for (Job<T> job : jobs) tasks.add(job::run);
+        try {
+            for (Future<T> f : pool.invokeAll(tasks)) results.add(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,189 @@
+package jogo.system;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Diário (write-ahead) das edições de blocos entre saves completos, em "saves/nome.journal.N".
+ * As edições ficam num buffer na thread de update e a cada FLUSH_SECONDS são acrescentadas ao segmento atual
+ * pela thread de escrita dos saves, com force: um crash perde no máximo esse intervalo.
+ * Cada flush é um frame { int n; int crc32; n x { int x, y, z; byte id } }; um frame incompleto ou com o CRC
+ * errado (crash a meio da escrita) termina a leitura do segmento.
+ * Um save completo começa um segmento novo (rotate) e apaga os anteriores quando já está no disco.
+ * Só há diário para um save que já existe no disco: antes do primeiro save as edições não são registadas
+ * (vão todas no snapshot desse save).
+ */
+public class EditJournal {
+    public static final float FLUSH_SECONDS = 1f;
+    private static final int RECORD_BYTES = 13;
+
+    private String saveName;
+    private int segment = 0;
+    private long segmentBytes = 0;
+    private float timer = 0f;
+
+    // Edições ainda por escrever: x, y, z, id
+    private int[] buffer = new int[4 * 256];
+    private int count = 0;
+
+    // Começa um segmento novo para o save dado (os que já existem ficam para serem repetidos no load)
+    public void open(String saveName) {
+        flush();
+        this.saveName = saveName;
+        this.segment = lastSegment(saveName) + 1;
+        this.segmentBytes = 0;
+    }
+
+    public boolean isOpen() { return saveName != null; }
+
+    /**
+     * O primeiro save falhou e o slot continua sem .dat: esquece as edições por escrever e apaga os segmentos
+     * (na thread de escrita, depois de qualquer flush que ainda esteja na fila).
+     */
+    public void abandon() {
+        count = 0;
+        timer = 0f;
+        if (saveName != null) deleteAllSegments(saveName);
+        saveName = null;
+    }
+
+    public void record(int x, int y, int z, byte id) {
+        if (saveName == null) return; // sem save no disco o diário não serve para nada
+        if (count * 4 == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        int i = count * 4;
+        buffer[i] = x;
+        buffer[i + 1] = y;
+        buffer[i + 2] = z;
+        buffer[i + 3] = id;
+        count++;
+    }
+
+    public void update(float tpf) {
+        timer += tpf;
+        if (timer < FLUSH_SECONDS) return;
+        timer = 0f;
+        flush();
+    }
+
+    // Passa o buffer para a thread de escrita
+    public void flush() {
+        if (count == 0 || saveName == null) return;
+        ByteBuffer frame = ByteBuffer.allocate(8 + count * RECORD_BYTES);
+        frame.putInt(count);
+        frame.putInt(0); // CRC, preenchido a seguir
+        for (int i = 0; i < count * 4; i += 4) {
+            frame.putInt(buffer[i]).putInt(buffer[i + 1]).putInt(buffer[i + 2]).put((byte) buffer[i + 3]);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), 8, count * RECORD_BYTES);
+        frame.putInt(4, (int) crc.getValue());
+        frame.flip();
+        count = 0;
+        segmentBytes += frame.remaining();
+
+        Path path = segmentPath(saveName, segment);
+        SaveManager.submit(null, () -> {
+            Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (frame.hasRemaining()) channel.write(frame);
+                channel.force(false);
+            }
+        });
+    }
+
+    /**
+     * Chamado por um save completo antes de tirar o snapshot: o que já foi editado fica nos segmentos
+     * anteriores e as edições seguintes vão para um segmento novo. Devolve o número do segmento novo;
+     * os anteriores podem ser apagados (deleteSegmentsBefore) quando o save estiver no disco.
+     */
+    public int rotate() {
+        flush();
+        segment++;
+        segmentBytes = 0;
+        return segment;
+    }
+
+    // Bytes do segmento atual (o PlayerAppState compacta o diário num save completo quando passa de um limite)
+    public long getSegmentBytes() { return segmentBytes + (long) count * RECORD_BYTES; }
+
+    // Todas as edições dos segmentos existentes, pela ordem em que foram feitas (x, y, z, id em grupos de 4)
+    public static int[] readAll(String saveName) throws IOException {
+        List<Integer> segments = listSegments(saveName);
+        int[] edits = new int[0];
+        int n = 0;
+        for (int seg : segments) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(segmentPath(saveName, seg)));
+            while (in.remaining() >= 8) {
+                int records = in.getInt();
+                int crc = in.getInt();
+                if (records <= 0 || in.remaining() < records * RECORD_BYTES) break; // frame incompleto
+                CRC32 check = new CRC32();
+                check.update(in.array(), in.position(), records * RECORD_BYTES);
+                if ((int) check.getValue() != crc) break;
+                if ((n + records) * 4 > edits.length) edits = Arrays.copyOf(edits, Math.max(edits.length * 2, (n + records) * 4));
+                for (int r = 0; r < records; r++, n++) {
+                    edits[n * 4] = in.getInt();
+                    edits[n * 4 + 1] = in.getInt();
+                    edits[n * 4 + 2] = in.getInt();
+                    edits[n * 4 + 3] = in.get();
+                }
+            }
+        }
+        return Arrays.copyOf(edits, n * 4);
+    }
+
+    // Apaga os segmentos anteriores a segment (já incluídos num save completo); corre na thread de escrita
+    public static void deleteSegmentsBefore(String saveName, int segment) throws IOException {
+        for (int seg : listSegments(saveName)) {
+            if (seg < segment) Files.deleteIfExists(segmentPath(saveName, seg));
+        }
+    }
+
+    // Segmentos deixados por um jogo que nunca chegou a ser gravado com este nome; corre na thread de escrita
+    public static void deleteAllSegments(String saveName) {
+        SaveManager.submit(null, () -> deleteSegmentsBefore(saveName, Integer.MAX_VALUE));
+    }
+
+    private static Path segmentPath(String saveName, int segment) {
+        return Paths.get(SaveManager.SAVE_DIR + saveName + ".journal." + segment);
+    }
+
+    private static int lastSegment(String saveName) {
+        try {
+            List<Integer> segments = listSegments(saveName);
+            return segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Números dos segmentos existentes, por ordem
+    private static List<Integer> listSegments(String saveName) throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        Path dir = Paths.get(SaveManager.SAVE_DIR);
+        if (!Files.isDirectory(dir)) return segments;
+        String prefix = saveName + ".journal.";
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(prefix)) continue;
+                try {
+                    segments.add(Integer.parseInt(name.substring(prefix.length())));
+                } catch (NumberFormatException ignored) {
+                    // não é um segmento (por exemplo um .tmp)
+                }
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+}
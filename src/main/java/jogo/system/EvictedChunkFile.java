@@ -0,0 +1,135 @@
+package jogo.system;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chunks alterados das colunas descarregadas de um mundo sem limites, num ficheiro temporário em vez do heap.
+ * Cada chunk é acrescentado ao fim do ficheiro como um payload de região (RegionFile.payload); em memória fica só
+ * o índice "cx,cy,cz" -> posição. Um chunk escrito de novo deixa o payload antigo perdido no ficheiro, que é
+ * compactado quando o lixo passa a ocupar mais do que os chunks vivos.
+ * O ficheiro só é criado na primeira escrita e é apagado por clear (e à saída da JVM).
+ */
+public final class EvictedChunkFile {
+    private static final long COMPACT_MIN_BYTES = 1 << 20;
+
+    // Posição de cada chunk: offset << 24 | tamanho do payload
+    private final Map<String, Long> index = new HashMap<>();
+    private Path path;
+    private FileChannel channel;
+    private long fileBytes = 0;
+    private long liveBytes = 0;
+
+    public int size() { return index.size(); }
+    public boolean contains(String key) { return index.containsKey(key); }
+    public Set<String> keys() { return index.keySet(); }
+    public long getFileBytes() { return fileBytes; }
+
+    // Acrescenta o chunk (voxels inteiros ou lista de edições); substitui o que já estivesse com a mesma chave
+    public void write(String key, byte[] voxels, int[] edits) throws IOException {
+        byte[] payload = voxels != null
+                ? RegionFile.payload(RegionFile.FULL, SaveFormat.encodeChunk(voxels))
+                : RegionFile.payload(RegionFile.EDITS, SaveFormat.encodeEdits(edits));
+        if (channel == null) open();
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        while (buffer.hasRemaining()) channel.write(buffer, fileBytes + buffer.position());
+        forget(index.put(key, fileBytes << 24 | payload.length));
+        fileBytes += payload.length;
+        liveBytes += payload.length;
+        if (fileBytes > COMPACT_MIN_BYTES && fileBytes > 2 * liveBytes) {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.out.println("Erro ao compactar os chunks descarregados: " + e.getMessage());
+            }
+        }
+    }
+
+    // Descodifica o chunk para data.chunkVoxels ou data.chunkEdits; false se não estiver guardado
+    public boolean read(String key, GameSaveData data) throws IOException {
+        Long location = index.get(key);
+        if (location == null) return false;
+        RegionFile.decode(key, readPayload(channel, location), data);
+        return true;
+    }
+
+    // Como read, e o chunk deixa de estar guardado (a coluna voltou a ser carregada)
+    // (também quando a leitura falha: um chunk ilegível não volta a ser tentado)
+    public boolean remove(String key, GameSaveData data) throws IOException {
+        Long location = index.remove(key);
+        if (location == null) return false;
+        forget(location);
+        RegionFile.decode(key, readPayload(channel, location), data);
+        return true;
+    }
+
+    public void discard(String key) { forget(index.remove(key)); }
+
+    // Esquece todos os chunks e apaga o ficheiro
+    public void clear() {
+        index.clear();
+        fileBytes = 0;
+        liveBytes = 0;
+        if (channel == null) return;
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.out.println("Erro ao apagar os chunks descarregados: " + e.getMessage());
+        }
+        channel = null;
+        path = null;
+    }
+
+    private void open() throws IOException {
+        path = Files.createTempFile("evicted-chunks", ".bin");
+        path.toFile().deleteOnExit();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static ByteBuffer readPayload(FileChannel from, long location) throws IOException {
+        long offset = location >>> 24;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (location & 0xFFFFFF));
+        while (buffer.hasRemaining()) {
+            if (from.read(buffer, offset + buffer.position()) < 0) throw new IOException("Ficheiro de chunks descarregados truncado");
+        }
+        return buffer.flip();
+    }
+
+    private void forget(Long location) {
+        if (location != null) liveBytes -= location & 0xFFFFFF;
+    }
+
+    // Copia só os payloads vivos para um ficheiro novo; se falhar a meio continua o antigo
+    private void compact() throws IOException {
+        Path target = Files.createTempFile("evicted-chunks", ".bin");
+        target.toFile().deleteOnExit();
+        Map<String, Long> moved = new HashMap<>();
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            for (Map.Entry<String, Long> entry : index.entrySet()) {
+                ByteBuffer payload = readPayload(channel, entry.getValue());
+                int length = payload.remaining();
+                while (payload.hasRemaining()) out.write(payload, offset + payload.position());
+                moved.put(entry.getKey(), offset << 24 | length);
+                offset += length;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        channel.close();
+        Files.deleteIfExists(path);
+        path = target;
+        channel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.putAll(moved);
+        fileBytes = liveBytes;
+    }
+}
@@ -8,7 +8,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-// Classe para armazenar todos os dados do jogo que precisam ser salvos/carregados
+// Classe para armazenar todos os dados do jogo que precisam ser salvos/carregados.
+// No disco é escrita pelo SaveFormat; continua Serializable só para o LegacySaveMigrator ler saves antigos.
 public class GameSaveData implements Serializable {
     private static final long serialVersionUID = 1L; // Versão de serialização garantindo a ordem correta dos dados
 
@@ -24,12 +25,44 @@ public class GameSaveData implements Serializable {
     public ItemStack[] hotbar;
     public ItemStack[] mainInventory;
 
+    // --- Dados do menu de load (secção META, ver SaveIndex) ---
+    public float playTime;      // segundos de jogo
+    public long savedAt;        // System.currentTimeMillis() do save
+    public int worldSizeX, worldSizeY, worldSizeZ;
+
     // --- Dados do Mundo ---
+    // Seed do terreno e VoxelWorld.GENERATOR_VERSION (0 = save sem base de gerador, com todos os chunks)
+    public long worldSeed;
+    public int generatorVersion;
+    // Passo da grelha das cavernas com que o terreno foi gerado (1 = exatas, como nos saves antigos)
+    public int caveStep = 1;
+
+    // Chunks que diferem do gerador. Chave "cx,cy,cz" -> Chunk.VOLUME bytes no layout de Chunk.index()
+    public Map<String, byte[]> chunkVoxels = new HashMap<>();
+
+    // Chunks com poucas células alteradas: lista de edições (ver packEdit)
+    public Map<String, int[]> chunkEdits = new HashMap<>();
+
+    // Chunks por região (RegionFile.SIZE) na pasta do save; 0 = os chunks estão dentro do próprio .dat
+    public int regionSize;
+    // Geração da pasta de regiões a que este .dat pertence (-1 = regiões diretamente na pasta, saves da versão 4)
+    public int regionGeneration = -1;
+    // Regiões abertas pelo SaveManager.loadGame; o VoxelWorld lê delas os chunks à medida que precisa
+    public transient RegionStore regions;
+    // Edições do EditJournal feitas depois deste save (x, y, z, id em grupos de 4), repetidas no load
+    public transient int[] journalEdits;
+
+    // Formato antigo (byte[x][y][z]); só existe em saves antigos e é convertido pelo LegacySaveMigrator
     public Map<String, byte[][][]> modifiedChunks = new HashMap<>();
 
     // --- NOVO: Dados dos NPCs ---
     public List<NpcData> npcs = new ArrayList<>();
 
+    // Uma edição = índice da célula (Chunk.index) e o id do bloco num só int
+    public static int packEdit(int index, byte id) { return (index << 8) | Byte.toUnsignedInt(id); }
+    public static int editIndex(int edit) { return edit >>> 8; }
+    public static byte editId(int edit) { return (byte) edit; }
+
     // Pequena classe interna para guardar info de cada NPC individual
     public static class NpcData implements Serializable {
         public String type; // "Sheep", "Zombie", etc.
@@ -0,0 +1,79 @@
+package jogo.system;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Converte saves antigos (GameSaveData em ObjectOutputStream + GZIP) para o SaveFormat.
+ * A conversão é só num sentido: o ficheiro original fica guardado como "nome.dat.bak".
+ * Também pode ser corrido à mão para converter a pasta saves/ inteira.
+ */
+public final class LegacySaveMigrator {
+    private LegacySaveMigrator() {}
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "saves");
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.toString().endsWith(".dat") && isLegacy(file)) {
+                    migrate(file);
+                    System.out.println("Convertido: " + file);
+                }
+            }
+        }
+    }
+
+    // Saves antigos começam pela assinatura do GZIP
+    public static boolean isLegacy(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    // Lê o save antigo, reescreve-o no formato novo e devolve os dados lidos
+    public static GameSaveData migrate(Path file) throws IOException {
+        GameSaveData data;
+        try (ObjectInputStream ois = new ObjectInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            data = (GameSaveData) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Save antigo ilegível: " + e.getMessage(), e);
+        }
+        flattenLegacyChunks(data);
+
+        Path backup = file.resolveSibling(file.getFileName() + ".bak");
+        Files.copy(file, backup, StandardCopyOption.REPLACE_EXISTING);
+        SaveManager.writeAtomically(file, out -> SaveFormat.write(data, out));
+        return data;
+    }
+
+    // Os saves mais antigos guardavam os chunks como byte[x][y][z]; passa-os para o layout de Chunk.index()
+    private static void flattenLegacyChunks(GameSaveData data) {
+        if (data.chunkVoxels == null) data.chunkVoxels = new HashMap<>();
+        if (data.chunkEdits == null) data.chunkEdits = new HashMap<>();
+        if (data.npcs == null) data.npcs = new ArrayList<>();
+        if (data.modifiedChunks == null) return;
+        for (Map.Entry<String, byte[][][]> entry : data.modifiedChunks.entrySet()) {
+            if (data.chunkVoxels.containsKey(entry.getKey())) continue;
+            byte[][][] voxels = entry.getValue();
+            byte[] flat = new byte[16 * 16 * 16];
+            int i = 0;
+            for (byte[][] plane : voxels) {
+                for (byte[] row : plane) {
+                    System.arraycopy(row, 0, flat, i, row.length);
+                    i += row.length;
+                }
+            }
+            data.chunkVoxels.put(entry.getKey(), flat);
+        }
+        data.modifiedChunks = null;
+    }
+}
@@ -0,0 +1,152 @@
+package jogo.system;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ficheiro de região: os chunks guardados de um bloco fixo de SIZE^3 chunks, lidos por FileChannel.map.
+ * Só a tabela é lida ao abrir; cada chunk é descodificado quando é pedido (ver RegionStore).
+ *
+ * <pre>
+ *   int    MAGIC ("JRGN")
+ *   short  versão
+ *   short  SIZE
+ *   CHUNKS x { int offset; int length }    offset desde o início do ficheiro, length 0 = chunk não guardado
+ *   payloads: byte tipo (FULL ou EDITS, | DEFLATED se comprimido) seguido de SaveFormat.encodeChunk ou
+ *             SaveFormat.encodeEdits; com DEFLATED: int tamanho sem compressão e os bytes do Deflater (ChunkCodec)
+ * </pre>
+ * A versão 1 não tinha DEFLATED.
+ */
+public final class RegionFile {
+    public static final int MAGIC = 0x4A52474E; // "JRGN"
+    public static final int VERSION = 2;
+    public static final int SIZE = 8; // chunks por lado
+    public static final int CHUNKS = SIZE * SIZE * SIZE;
+    private static final int HEADER = 8 + CHUNKS * 8;
+
+    public static final byte FULL = 0;
+    public static final byte EDITS = 1;
+    public static final byte DEFLATED = (byte) 0x80;
+
+    private final int regionX, regionY, regionZ;
+    private final MappedByteBuffer map;
+
+    private RegionFile(int regionX, int regionY, int regionZ, MappedByteBuffer map) {
+        this.regionX = regionX;
+        this.regionY = regionY;
+        this.regionZ = regionZ;
+        this.map = map;
+    }
+
+    // Região de um chunk (floorDiv para funcionar também com coordenadas negativas)
+    public static int region(int chunkCoord) { return Math.floorDiv(chunkCoord, SIZE); }
+
+    // Índice do chunk dentro da região
+    public static int localIndex(int cx, int cy, int cz) {
+        return (Math.floorMod(cx, SIZE) * SIZE + Math.floorMod(cy, SIZE)) * SIZE + Math.floorMod(cz, SIZE);
+    }
+
+    public static String fileName(int rx, int ry, int rz) { return "r." + rx + "." + ry + "." + rz + ".bin"; }
+
+    public static RegionFile open(Path file, int rx, int ry, int rz) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // o mapeamento continua válido depois do close
+        }
+        if (map.limit() < HEADER || map.getInt(0) != MAGIC) throw new IOException("Região inválida: " + file);
+        if (map.getShort(4) > VERSION || map.getShort(6) != SIZE) throw new IOException("Região de outra versão: " + file);
+        return new RegionFile(rx, ry, rz, map);
+    }
+
+    // Chaves "cx,cy,cz" de todos os chunks guardados nesta região
+    public List<String> chunkKeys() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < CHUNKS; i++) {
+            if (map.getInt(8 + i * 8 + 4) == 0) continue;
+            int cx = regionX * SIZE + i / (SIZE * SIZE);
+            int cy = regionY * SIZE + (i / SIZE) % SIZE;
+            int cz = regionZ * SIZE + i % SIZE;
+            keys.add(cx + "," + cy + "," + cz);
+        }
+        return keys;
+    }
+
+    // Descodifica o chunk para data.chunkVoxels ou data.chunkEdits; false se não estiver guardado
+    public boolean read(int cx, int cy, int cz, GameSaveData data) throws IOException {
+        int entry = 8 + localIndex(cx, cy, cz) * 8;
+        int offset = map.getInt(entry);
+        int length = map.getInt(entry + 4);
+        if (length == 0) return false;
+        try {
+            ByteBuffer payload = map.duplicate();
+            payload.position(offset).limit(offset + length);
+            decode(cx + "," + cy + "," + cz, payload.slice(), data);
+            return true;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Região truncada ou corrompida", e);
+        }
+    }
+
+    // Descodifica um payload (ver payload) para data.chunkVoxels ou data.chunkEdits com a chave dada
+    public static void decode(String key, ByteBuffer payload, GameSaveData data) throws IOException {
+        try {
+            byte type = payload.get();
+            if ((type & DEFLATED) != 0) {
+                int rawLength = payload.getInt();
+                payload = ChunkCodec.inflate(payload, rawLength);
+                type &= ~DEFLATED;
+            }
+            if (type == FULL) data.chunkVoxels.put(key, SaveFormat.decodeChunk(payload));
+            else if (type == EDITS) data.chunkEdits.put(key, SaveFormat.decodeEdits(payload));
+            else throw new IOException("Tipo de chunk desconhecido: " + type);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Chunk truncado ou corrompido", e);
+        }
+    }
+
+    // Tipo + payload codificado, comprimido com o nível de ChunkCodec quando compensa
+    public static byte[] payload(byte type, byte[] encoded) {
+        byte[] deflated = ChunkCodec.deflate(encoded);
+        if (deflated == null || deflated.length + 4 >= encoded.length) {
+            return ByteBuffer.allocate(1 + encoded.length).put(type).put(encoded).array();
+        }
+        return ByteBuffer.allocate(5 + deflated.length).put((byte) (type | DEFLATED)).putInt(encoded.length).put(deflated).array();
+    }
+
+    // Escreve uma região a partir dos payloads já codificados (índice local -> tipo + dados)
+    public static void write(Path file, Map<Integer, byte[]> payloads) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int[] offsets = new int[CHUNKS];
+        int[] lengths = new int[CHUNKS];
+        for (Map.Entry<Integer, byte[]> entry : payloads.entrySet()) {
+            offsets[entry.getKey()] = HEADER + body.size();
+            lengths[entry.getKey()] = entry.getValue().length;
+            body.write(entry.getValue());
+        }
+        try (FileOutputStream out = new FileOutputStream(file.toFile())) {
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+            dos.writeInt(MAGIC);
+            dos.writeShort(VERSION);
+            dos.writeShort(SIZE);
+            for (int i = 0; i < CHUNKS; i++) {
+                dos.writeInt(offsets[i]);
+                dos.writeInt(lengths[i]);
+            }
+            body.writeTo(dos);
+            dos.flush();
+            out.getFD().sync();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package jogo.system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regiões de um save, na pasta "saves/nome.regions/g<geração>/" (ver RegionFile).
+ * O save completo passa os chunks de GameSaveData para aqui; ao carregar, o VoxelWorld lê cada chunk
+ * quando precisa dele (perto do jogador primeiro), sem descodificar o save inteiro.
+ */
+public final class RegionStore {
+    private final Map<String, RegionFile> regions = new HashMap<>(); // chave "rx,ry,rz"
+
+    private RegionStore() {}
+
+    // Abre (mapeia) todas as regiões da pasta; uma pasta que não existe é um save sem chunks guardados
+    public static RegionStore open(Path dir) throws IOException {
+        return open(dir, -1);
+    }
+
+    // Abre a geração indicada do save (-1: regiões soltas na pasta, saves da versão 4)
+    public static RegionStore open(Path dir, int generation) throws IOException {
+        RegionStore store = new RegionStore();
+        dir = generationDir(dir, generation);
+        if (!Files.isDirectory(dir)) return store;
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                int[] r = parseFileName(file.getFileName().toString());
+                if (r == null) continue;
+                store.regions.put(r[0] + "," + r[1] + "," + r[2], RegionFile.open(file, r[0], r[1], r[2]));
+            }
+        }
+        return store;
+    }
+
+    public int getRegionCount() { return regions.size(); }
+
+    // Chaves "cx,cy,cz" de todos os chunks guardados (só lê as tabelas)
+    public List<String> chunkKeys() {
+        List<String> keys = new ArrayList<>();
+        for (RegionFile region : regions.values()) keys.addAll(region.chunkKeys());
+        return keys;
+    }
+
+    // Descodifica um chunk para data.chunkVoxels ou data.chunkEdits; false se não estiver guardado
+    public boolean read(int cx, int cy, int cz, GameSaveData data) throws IOException {
+        String key = RegionFile.region(cx) + "," + RegionFile.region(cy) + "," + RegionFile.region(cz);
+        RegionFile region = regions.get(key);
+        return region != null && region.read(cx, cy, cz, data);
+    }
+
+    // Descodifica vários chunks (coordenadas cx, cy, cz) em paralelo para data; os que falham são saltados
+    public void readAll(List<int[]> coords, GameSaveData data) {
+        List<ChunkCodec.Job<GameSaveData>> jobs = new ArrayList<>();
+        for (int[] c : coords) {
+            jobs.add(() -> {
+                GameSaveData one = new GameSaveData();
+                try {
+                    read(c[0], c[1], c[2], one);
+                } catch (IOException e) {
+                    System.out.println("Erro ao ler o chunk " + c[0] + "," + c[1] + "," + c[2] + " da região: " + e.getMessage());
+                }
+                return one;
+            });
+        }
+        try {
+            for (GameSaveData one : ChunkCodec.runAll(jobs)) {
+                data.chunkVoxels.putAll(one.chunkVoxels);
+                data.chunkEdits.putAll(one.chunkEdits);
+            }
+        } catch (IOException e) {
+            System.out.println("Erro ao ler as regiões: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escreve os chunks de data (chunkVoxels e chunkEdits) numa geração nova "g<n>/" da pasta, sem tocar nas
+     * regiões que o .dat atual ainda usa: um crash a meio deixa o save anterior inteiro. A geração antiga só é
+     * apagada (deleteOtherGenerations) depois de o .dat novo estar no sítio.
+     * Os mapas de data ficam vazios, data.regionSize passa a RegionFile.SIZE e data.regionGeneration à geração nova.
+     */
+    public static void write(Path dir, GameSaveData data) throws IOException {
+        int generation = lastGeneration(dir) + 1;
+        Path target = generationDir(dir, generation);
+        Files.createDirectories(target);
+        // Codificação e compressão de cada chunk em paralelo (ChunkCodec)
+        List<String> keys = new ArrayList<>();
+        List<ChunkCodec.Job<byte[]>> jobs = new ArrayList<>();
+        for (Map.Entry<String, byte[]> entry : data.chunkVoxels.entrySet()) {
+            byte[] voxels = entry.getValue();
+            keys.add(entry.getKey());
+            jobs.add(() -> RegionFile.payload(RegionFile.FULL, SaveFormat.encodeChunk(voxels)));
+        }
+        for (Map.Entry<String, int[]> entry : data.chunkEdits.entrySet()) {
+            int[] edits = entry.getValue();
+            keys.add(entry.getKey());
+            jobs.add(() -> RegionFile.payload(RegionFile.EDITS, SaveFormat.encodeEdits(edits)));
+        }
+        List<byte[]> payloads = ChunkCodec.runAll(jobs);
+        Map<String, Map<Integer, byte[]>> byRegion = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) put(byRegion, keys.get(i), payloads.get(i));
+
+        for (Map.Entry<String, Map<Integer, byte[]>> entry : byRegion.entrySet()) {
+            String[] r = entry.getKey().split(",");
+            String name = RegionFile.fileName(Integer.parseInt(r[0]), Integer.parseInt(r[1]), Integer.parseInt(r[2]));
+            RegionFile.write(target.resolve(name), entry.getValue());
+        }
+
+        data.chunkVoxels.clear();
+        data.chunkEdits.clear();
+        data.regionSize = RegionFile.SIZE;
+        data.regionGeneration = generation;
+    }
+
+    // Apaga as gerações que o .dat já não usa (e as regiões soltas dos saves da versão 4)
+    public static void deleteOtherGenerations(Path dir, int keep) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                int generation = parseGeneration(name);
+                if (generation >= 0 && generation != keep) deleteTree(file);
+                else if (parseFileName(name) != null && keep >= 0) Files.delete(file);
+            }
+        }
+    }
+
+    public static Path generationDir(Path dir, int generation) {
+        return generation < 0 ? dir : dir.resolve("g" + generation);
+    }
+
+    private static int lastGeneration(Path dir) throws IOException {
+        int last = -1;
+        if (!Files.isDirectory(dir)) return last;
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) last = Math.max(last, parseGeneration(file.getFileName().toString()));
+        }
+        return last;
+    }
+
+    // "g12" -> 12; -1 se não for uma pasta de geração
+    private static int parseGeneration(String name) {
+        if (!name.startsWith("g")) return -1;
+        try {
+            return Integer.parseInt(name.substring(1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    private static void put(Map<String, Map<Integer, byte[]>> byRegion, String chunkKey, byte[] payload) {
+        String[] c = chunkKey.split(",");
+        int cx = Integer.parseInt(c[0]), cy = Integer.parseInt(c[1]), cz = Integer.parseInt(c[2]);
+        String regionKey = RegionFile.region(cx) + "," + RegionFile.region(cy) + "," + RegionFile.region(cz);
+        byRegion.computeIfAbsent(regionKey, k -> new HashMap<>()).put(RegionFile.localIndex(cx, cy, cz), payload);
+    }
+
+    // "r.rx.ry.rz.bin" -> {rx, ry, rz}, ou null se não for um ficheiro de região
+    private static int[] parseFileName(String name) {
+        if (!name.startsWith("r.") || !name.endsWith(".bin")) return null;
+        String[] parts = name.substring(2, name.length() - 4).split("\\.");
+        if (parts.length != 3) return null;
+        try {
+            return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]) };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
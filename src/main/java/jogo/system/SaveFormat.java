@@ -0,0 +1,557 @@
+package jogo.system;
+
+import jogo.gameobject.item.ItemStack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formato binário dos saves (ficheiros .dat), versão {@value #VERSION}. Tudo em big-endian.
+ * Um leitor aceita versões iguais ou anteriores; a versão 1 não tinha as secções WRLD e EDIT, a 2 não tinha patches
+ * a 3 não tinha RGNS, a 4 não tinha a geração das regiões, a 5 não tinha META, a 6 não tinha o passo das cavernas
+ * e até à 7 as coordenadas das tabelas de CHNK e EDIT eram short (os mundos sem limites passam de ±32767 chunks).
+ *
+ * <pre>
+ * Cabeçalho
+ *   int    MAGIC ("JOGO")
+ *   short  versão
+ *   short  número de secções N
+ *   N x { int tag, int offset, int length }    offset desde o início do ficheiro
+ *
+ * Patches do autosave, acrescentados ao fim do ficheiro e aplicados por ordem sobre o save base
+ *   int    PATCH_MAGIC ("JPAT")
+ *   int    tamanho do resto do patch
+ *   short  número de secções N; short versão do patch (0: tabelas de CHNK/EDIT com coordenadas short, 1: int)
+ *   N x { int tag, int offset, int length }    offset desde o início do patch
+ *   Um chunk num patch substitui o que estava antes (em CHNK ou EDIT); um EDIT vazio volta ao estado gerado.
+ *   Um patch incompleto no fim do ficheiro (jogo fechado a meio da escrita) é ignorado.
+ *
+ * Secções (tags de 4 letras; um leitor ignora as tags que não conhece)
+ *   PLYR  float x, y, z, yaw, pitch; int health
+ *   INVT  inventário(hotbar), inventário(mainInventory)
+ *         inventário = short n (-1 se null) e n x { byte presente; [byte id, int amount] }
+ *   NPCS  int n; n x { UTF tipo; float x, y, z; int health }
+ *   MINI  float timer; int targetsHit; boolean running
+ *   META  float tempo de jogo (s); long gravado em (ms desde 1970); int tamanho do mundo x, y, z
+ *         (o menu de load lê só PLYR, WRLD e META, ver readSummary e SaveIndex)
+ *   WRLD  long seed; int versão do gerador (0 = sem gerador, CHNK tem todos os chunks);
+ *         int passo da grelha das cavernas (ver VoxelWorld.setCaveStep)
+ *   RGNS  int chunks por lado de cada região (0 = sem regiões); int geração das regiões
+ *         com regiões os chunks do save completo estão em "nome.regions/g<geração>/" (ver RegionStore)
+ *         e CHNK/EDIT do cabeçalho vêm vazios
+ *   CHNK  int n; tabela n x { int cx, cy, cz; int offset; int length } (offset desde o início da secção)
+ *         seguida dos payloads de cada chunk
+ *   EDIT  tabela igual à de CHNK; payload = ushort n; n x { ushort índice (Chunk.index); ubyte id }
+ *
+ * Payload de um chunk (Chunk.VOLUME células pela ordem de Chunk.index())
+ *   ubyte  tamanho da paleta - 1
+ *   paleta de ids de bloco
+ *   se a paleta tiver mais de um id: runs { ushort comprimento; ubyte índice na paleta } até cobrir o volume
+ * </pre>
+ *
+ * As secções e os chunks têm offsets próprios, por isso um leitor pode saltar diretamente para o que precisa.
+ */
+public final class SaveFormat {
+    public static final int MAGIC = 0x4A4F474F; // "JOGO"
+    public static final int VERSION = 8;
+    public static final int PATCH_MAGIC = 0x4A504154; // "JPAT"
+    public static final int PATCH_VERSION = 1;
+    // Primeira versão (do save e dos patches) com coordenadas int nas tabelas de CHNK e EDIT
+    private static final int INT_COORDS_VERSION = 8, INT_COORDS_PATCH_VERSION = 1;
+
+    public static final int TAG_PLAYER = tag("PLYR");
+    public static final int TAG_INVENTORY = tag("INVT");
+    public static final int TAG_NPCS = tag("NPCS");
+    public static final int TAG_MINIGAME = tag("MINI");
+    public static final int TAG_WORLD = tag("WRLD");
+    public static final int TAG_CHUNKS = tag("CHNK");
+    public static final int TAG_EDITS = tag("EDIT");
+    public static final int TAG_REGIONS = tag("RGNS");
+    public static final int TAG_META = tag("META");
+
+    private static final int CHUNK_VOLUME = 16 * 16 * 16; // Chunk.VOLUME
+
+    private SaveFormat() {}
+
+    private static int tag(String name) {
+        byte[] b = name.getBytes(StandardCharsets.US_ASCII);
+        return (b[0] << 24) | (b[1] << 16) | (b[2] << 8) | b[3];
+    }
+
+    // True se os primeiros bytes forem os de um save neste formato (e não um save antigo em GZIP)
+    public static boolean isSaveFormat(byte[] head) {
+        return head.length >= 4 && ByteBuffer.wrap(head).getInt() == MAGIC;
+    }
+
+    // --- Escrita ---
+
+    public static void write(GameSaveData data, OutputStream out) throws IOException {
+        List<Integer> tags = new ArrayList<>();
+        List<byte[]> sections = new ArrayList<>();
+
+        addSections(data, tags, sections);
+        tags.add(TAG_WORLD);
+        sections.add(writeWorld(data));
+        tags.add(TAG_REGIONS);
+        sections.add(ByteBuffer.allocate(8).putInt(data.regionSize).putInt(data.regionGeneration).array());
+
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(MAGIC);
+        dos.writeShort(VERSION);
+        dos.writeShort(sections.size());
+        writeSectionTable(dos, tags, sections, 8 + sections.size() * 12);
+        dos.flush();
+    }
+
+    /**
+     * Escreve um patch do autosave (estado do jogador, NPCs, minijogo e os chunks em data) para ser
+     * acrescentado ao fim de um save existente. Devolve o número de bytes escritos.
+     */
+    public static int writePatch(GameSaveData data, OutputStream out) throws IOException {
+        List<Integer> tags = new ArrayList<>();
+        List<byte[]> sections = new ArrayList<>();
+        addSections(data, tags, sections);
+
+        int headerSize = 12 + sections.size() * 12;
+        int size = headerSize;
+        for (byte[] section : sections) size += section.length;
+
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(PATCH_MAGIC);
+        dos.writeInt(size - 8);
+        dos.writeShort(sections.size());
+        dos.writeShort(PATCH_VERSION);
+        writeSectionTable(dos, tags, sections, headerSize);
+        dos.flush();
+        return size;
+    }
+
+    // Secções comuns ao save completo e aos patches
+    private static void addSections(GameSaveData data, List<Integer> tags, List<byte[]> sections) throws IOException {
+        tags.add(TAG_PLAYER);
+        sections.add(writePlayer(data));
+        tags.add(TAG_INVENTORY);
+        sections.add(writeInventory(data));
+        tags.add(TAG_NPCS);
+        sections.add(writeNpcs(data));
+        tags.add(TAG_MINIGAME);
+        sections.add(writeMiniGame(data));
+        tags.add(TAG_CHUNKS);
+        sections.add(writeChunks(data.chunkVoxels));
+        tags.add(TAG_EDITS);
+        sections.add(writeEdits(data.chunkEdits));
+        tags.add(TAG_META);
+        sections.add(ByteBuffer.allocate(24).putFloat(data.playTime).putLong(data.savedAt)
+                .putInt(data.worldSizeX).putInt(data.worldSizeY).putInt(data.worldSizeZ).array());
+    }
+
+    // Tabela { tag, offset, length } seguida das secções; o offset da primeira é firstOffset
+    private static void writeSectionTable(DataOutputStream dos, List<Integer> tags, List<byte[]> sections, int firstOffset) throws IOException {
+        int offset = firstOffset;
+        for (int i = 0; i < sections.size(); i++) {
+            dos.writeInt(tags.get(i));
+            dos.writeInt(offset);
+            dos.writeInt(sections.get(i).length);
+            offset += sections.get(i).length;
+        }
+        for (byte[] section : sections) dos.write(section);
+    }
+
+    private static byte[] writePlayer(GameSaveData data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeFloat(data.playerX);
+        out.writeFloat(data.playerY);
+        out.writeFloat(data.playerZ);
+        out.writeFloat(data.rotYaw);
+        out.writeFloat(data.rotPitch);
+        out.writeInt(data.health);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] writeInventory(GameSaveData data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeStacks(out, data.hotbar);
+        writeStacks(out, data.mainInventory);
+        return bytes.toByteArray();
+    }
+
+    private static void writeStacks(DataOutputStream out, ItemStack[] stacks) throws IOException {
+        if (stacks == null) {
+            out.writeShort(-1);
+            return;
+        }
+        out.writeShort(stacks.length);
+        for (ItemStack stack : stacks) {
+            out.writeBoolean(stack != null);
+            if (stack != null) {
+                out.writeByte(stack.getId());
+                out.writeInt(stack.getAmount());
+            }
+        }
+    }
+
+    private static byte[] writeNpcs(GameSaveData data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<GameSaveData.NpcData> npcs = data.npcs != null ? data.npcs : List.of();
+        out.writeInt(npcs.size());
+        for (GameSaveData.NpcData npc : npcs) {
+            out.writeUTF(npc.type);
+            out.writeFloat(npc.x);
+            out.writeFloat(npc.y);
+            out.writeFloat(npc.z);
+            out.writeInt(npc.health);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] writeMiniGame(GameSaveData data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeFloat(data.miniGameTimer);
+        out.writeInt(data.miniGameTargetsHit);
+        out.writeBoolean(data.miniGameRunning);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] writeWorld(GameSaveData data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(data.worldSeed);
+        out.writeInt(data.generatorVersion);
+        out.writeInt(data.caveStep);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] writeChunks(Map<String, byte[]> chunks) throws IOException {
+        List<int[]> coords = new ArrayList<>();
+        List<byte[]> payloads = new ArrayList<>();
+        for (Map.Entry<String, byte[]> entry : chunks.entrySet()) {
+            coords.add(parseKey(entry.getKey()));
+            payloads.add(encodeChunk(entry.getValue()));
+        }
+        return writeChunkTable(coords, payloads);
+    }
+
+    private static byte[] writeEdits(Map<String, int[]> edits) throws IOException {
+        List<int[]> coords = new ArrayList<>();
+        List<byte[]> payloads = new ArrayList<>();
+        for (Map.Entry<String, int[]> entry : edits.entrySet()) {
+            coords.add(parseKey(entry.getKey()));
+            payloads.add(encodeEdits(entry.getValue()));
+        }
+        return writeChunkTable(coords, payloads);
+    }
+
+    // Tabela { cx, cy, cz, offset, length } seguida dos payloads (usada por CHNK e EDIT)
+    private static byte[] writeChunkTable(List<int[]> coords, List<byte[]> payloads) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(payloads.size());
+        int offset = 4 + payloads.size() * 20;
+        for (int i = 0; i < payloads.size(); i++) {
+            int[] c = coords.get(i);
+            out.writeInt(c[0]);
+            out.writeInt(c[1]);
+            out.writeInt(c[2]);
+            out.writeInt(offset);
+            out.writeInt(payloads.get(i).length);
+            offset += payloads.get(i).length;
+        }
+        for (byte[] payload : payloads) out.write(payload);
+        return bytes.toByteArray();
+    }
+
+    // Paleta dos ids presentes + runs (comprimento, índice). Um chunk uniforme fica com 2 bytes.
+    public static byte[] encodeChunk(byte[] voxels) {
+        int[] paletteIndex = new int[256];
+        Arrays.fill(paletteIndex, -1);
+        byte[] palette = new byte[256];
+        int paletteSize = 0;
+        for (byte b : voxels) {
+            int id = Byte.toUnsignedInt(b);
+            if (paletteIndex[id] < 0) {
+                paletteIndex[id] = paletteSize;
+                palette[paletteSize++] = b;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 + paletteSize + 64);
+        out.write(paletteSize - 1);
+        out.write(palette, 0, paletteSize);
+        if (paletteSize == 1) return out.toByteArray();
+
+        for (int i = 0; i < CHUNK_VOLUME; ) {
+            byte id = voxels[i];
+            int run = 1;
+            while (i + run < CHUNK_VOLUME && voxels[i + run] == id) run++;
+            out.write(run >>> 8);
+            out.write(run);
+            out.write(paletteIndex[Byte.toUnsignedInt(id)]);
+            i += run;
+        }
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeEdits(int[] edits) {
+        ByteBuffer out = ByteBuffer.allocate(2 + edits.length * 3);
+        out.putShort((short) edits.length);
+        for (int edit : edits) {
+            out.putShort((short) GameSaveData.editIndex(edit));
+            out.put(GameSaveData.editId(edit));
+        }
+        return out.array();
+    }
+
+    // --- Leitura ---
+
+    /**
+     * Lê um save completo a partir do conteúdo do ficheiro, incluindo os patches do autosave.
+     * Lança IOException se o ficheiro não for deste formato, for de uma versão mais recente ou estiver truncado.
+     */
+    public static GameSaveData read(ByteBuffer file) throws IOException {
+        try {
+            if (file.getInt(0) != MAGIC) throw new IOException("Save inválido (cabeçalho desconhecido)");
+            int version = file.getShort(4);
+            if (version > VERSION) throw new IOException("Save de uma versão mais recente (" + version + ")");
+
+            GameSaveData data = new GameSaveData();
+            int end = readPatches(file, readSections(file, 8, file.getShort(6), version >= INT_COORDS_VERSION, data), data);
+            if (end < file.limit()) System.out.println("SaveFormat: ignorados " + (file.limit() - end) + " bytes no fim do save");
+            return data;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Save truncado ou corrompido", e);
+        }
+    }
+
+    // Bytes do ficheiro que pertencem ao save (o resto é um patch incompleto de um crash a meio de um autosave)
+    public static int validLength(ByteBuffer file) throws IOException {
+        try {
+            return readPatches(file, readSections(file, 8, file.getShort(6), true, null), null);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Save truncado ou corrompido", e);
+        }
+    }
+
+    /**
+     * Lê só as secções pequenas do save base (PLYR, WRLD e META) com leituras posicionais, sem carregar o
+     * ficheiro nem descodificar chunks. Os patches do autosave não são vistos. Devolve null se não for um
+     * save neste formato.
+     */
+    public static GameSaveData readSummary(FileChannel channel) throws IOException {
+        ByteBuffer header = readAt(channel, 0, 8);
+        if (header.getInt(0) != MAGIC) return null;
+        int count = header.getShort(6);
+        ByteBuffer table = readAt(channel, 8, count * 12);
+        GameSaveData data = new GameSaveData();
+        try {
+            for (int i = 0; i < count; i++) {
+                int tag = table.getInt(i * 12);
+                if (tag != TAG_PLAYER && tag != TAG_WORLD && tag != TAG_META) continue;
+                ByteBuffer section = readAt(channel, table.getInt(i * 12 + 4), table.getInt(i * 12 + 8));
+                if (tag == TAG_PLAYER) readPlayer(section, data);
+                else if (tag == TAG_WORLD) readWorld(section, data);
+                else readMeta(section, data);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Save truncado ou corrompido", e);
+        }
+        return data;
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        if (length < 0 || position + length > channel.size()) throw new IOException("Save truncado ou corrompido");
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Save truncado");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // Aplica os patches do autosave a partir de end (ou só os percorre, se data for null); devolve o fim do último completo
+    private static int readPatches(ByteBuffer file, int end, GameSaveData data) throws IOException {
+        int patches = 0;
+        while (end + 8 <= file.limit() && file.getInt(end) == PATCH_MAGIC) {
+            int length = file.getInt(end + 4);
+            if (length < 4 || end + 8 + length > file.limit()) break; // patch incompleto
+            ByteBuffer patch = slice(file, end, 8 + length);
+            readSections(patch, 12, patch.getShort(8), patch.getShort(10) >= INT_COORDS_PATCH_VERSION, data);
+            end += 8 + length;
+            patches++;
+        }
+        if (data != null && patches > 0) System.out.println("SaveFormat: aplicados " + patches + " patches do autosave");
+        return end;
+    }
+
+    // Lê a tabela de secções que começa em tableOffset (só calcula o fim se data for null); devolve o fim da última secção.
+    // intCoords: as tabelas de CHNK e EDIT têm coordenadas int (senão short, saves até à versão 7)
+    private static int readSections(ByteBuffer file, int tableOffset, int sectionCount, boolean intCoords, GameSaveData data) throws IOException {
+        int end = tableOffset + sectionCount * 12;
+        for (int i = 0; i < sectionCount; i++) {
+            int entry = tableOffset + i * 12;
+            int tag = file.getInt(entry);
+            int offset = file.getInt(entry + 4);
+            int length = file.getInt(entry + 8);
+            ByteBuffer section = slice(file, offset, length);
+            end = Math.max(end, offset + length);
+            if (data == null) continue;
+            if (tag == TAG_PLAYER) readPlayer(section, data);
+            else if (tag == TAG_INVENTORY) readInventory(section, data);
+            else if (tag == TAG_NPCS) readNpcs(section, data);
+            else if (tag == TAG_MINIGAME) readMiniGame(section, data);
+            else if (tag == TAG_WORLD) readWorld(section, data);
+            else if (tag == TAG_CHUNKS) readChunks(section, intCoords, data);
+            else if (tag == TAG_EDITS) readEdits(section, intCoords, data);
+            else if (tag == TAG_REGIONS) readRegions(section, data);
+            else if (tag == TAG_META) readMeta(section, data);
+        }
+        return end;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(offset);
+        dup.limit(offset + length);
+        return dup.slice();
+    }
+
+    private static void readPlayer(ByteBuffer in, GameSaveData data) {
+        data.playerX = in.getFloat();
+        data.playerY = in.getFloat();
+        data.playerZ = in.getFloat();
+        data.rotYaw = in.getFloat();
+        data.rotPitch = in.getFloat();
+        data.health = in.getInt();
+    }
+
+    private static void readInventory(ByteBuffer in, GameSaveData data) {
+        data.hotbar = readStacks(in);
+        data.mainInventory = readStacks(in);
+    }
+
+    private static ItemStack[] readStacks(ByteBuffer in) {
+        int n = in.getShort();
+        if (n < 0) return null;
+        ItemStack[] stacks = new ItemStack[n];
+        for (int i = 0; i < n; i++) {
+            if (in.get() != 0) stacks[i] = new ItemStack(in.get(), in.getInt());
+        }
+        return stacks;
+    }
+
+    private static void readNpcs(ByteBuffer in, GameSaveData data) {
+        data.npcs.clear(); // num patch a lista substitui a anterior
+        int n = in.getInt();
+        for (int i = 0; i < n; i++) {
+            String type = readUTF(in);
+            data.npcs.add(new GameSaveData.NpcData(type, in.getFloat(), in.getFloat(), in.getFloat(), in.getInt()));
+        }
+    }
+
+    // Mesmo formato que DataOutputStream.writeUTF (tamanho + UTF-8 modificado; os tipos de NPC são ASCII)
+    private static String readUTF(ByteBuffer in) {
+        byte[] b = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void readMiniGame(ByteBuffer in, GameSaveData data) {
+        data.miniGameTimer = in.getFloat();
+        data.miniGameTargetsHit = in.getInt();
+        data.miniGameRunning = in.get() != 0;
+    }
+
+    private static void readMeta(ByteBuffer in, GameSaveData data) {
+        data.playTime = in.getFloat();
+        data.savedAt = in.getLong();
+        data.worldSizeX = in.getInt();
+        data.worldSizeY = in.getInt();
+        data.worldSizeZ = in.getInt();
+    }
+
+    private static void readRegions(ByteBuffer in, GameSaveData data) {
+        data.regionSize = in.getInt();
+        data.regionGeneration = in.remaining() >= 4 ? in.getInt() : -1; // versão 4: sem geração
+    }
+
+    private static void readWorld(ByteBuffer in, GameSaveData data) {
+        data.worldSeed = in.getLong();
+        data.generatorVersion = in.getInt();
+        data.caveStep = in.remaining() >= 4 ? in.getInt() : 1; // versão 6: cavernas exatas
+    }
+
+    private static void readChunks(ByteBuffer in, boolean intCoords, GameSaveData data) throws IOException {
+        int n = in.getInt();
+        int coords = intCoords ? 12 : 6;
+        for (int i = 0; i < n; i++) {
+            int entry = 4 + i * (coords + 8);
+            String key = tableKey(in, entry, intCoords);
+            data.chunkVoxels.put(key, decodeChunk(slice(in, in.getInt(entry + coords), in.getInt(entry + coords + 4))));
+            data.chunkEdits.remove(key);
+        }
+    }
+
+    private static void readEdits(ByteBuffer in, boolean intCoords, GameSaveData data) {
+        int n = in.getInt();
+        int coords = intCoords ? 12 : 6;
+        for (int i = 0; i < n; i++) {
+            int entry = 4 + i * (coords + 8);
+            String key = tableKey(in, entry, intCoords);
+            data.chunkEdits.put(key, decodeEdits(slice(in, in.getInt(entry + coords), in.getInt(entry + coords + 4))));
+            data.chunkVoxels.remove(key);
+        }
+    }
+
+    private static String tableKey(ByteBuffer in, int entry, boolean intCoords) {
+        if (intCoords) return in.getInt(entry) + "," + in.getInt(entry + 4) + "," + in.getInt(entry + 8);
+        return in.getShort(entry) + "," + in.getShort(entry + 2) + "," + in.getShort(entry + 4);
+    }
+
+    public static byte[] decodeChunk(ByteBuffer in) throws IOException {
+        byte[] voxels = new byte[CHUNK_VOLUME];
+        int paletteSize = Byte.toUnsignedInt(in.get()) + 1;
+        byte[] palette = new byte[paletteSize];
+        in.get(palette);
+        if (paletteSize == 1) {
+            Arrays.fill(voxels, palette[0]);
+            return voxels;
+        }
+        for (int i = 0; i < CHUNK_VOLUME; ) {
+            int run = Short.toUnsignedInt(in.getShort());
+            if (run == 0) throw new IOException("Chunk corrompido (run vazio)");
+            byte id = palette[Byte.toUnsignedInt(in.get())];
+            Arrays.fill(voxels, i, i + run, id);
+            i += run;
+        }
+        return voxels;
+    }
+
+    public static int[] decodeEdits(ByteBuffer in) {
+        int[] edits = new int[Short.toUnsignedInt(in.getShort())];
+        for (int i = 0; i < edits.length; i++) {
+            int index = Short.toUnsignedInt(in.getShort());
+            if (index >= CHUNK_VOLUME) throw new IndexOutOfBoundsException("Edição fora do chunk: " + index);
+            edits[i] = GameSaveData.packEdit(index, in.get());
+        }
+        return edits;
+    }
+
+    // "cx,cy,cz" -> {cx, cy, cz}
+    private static int[] parseKey(String key) {
+        String[] parts = key.split(",");
+        return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]) };
+    }
+}
@@ -0,0 +1,158 @@
+package jogo.system;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice dos saves em "saves/index.bin": o menu de load mostra nome, seed, tempo de jogo, data, tamanho do
+ * mundo e posição do jogador sem abrir nenhum save.
+ * A thread de escrita atualiza a entrada depois de cada save completo ou patch do autosave. Um save que não
+ * esteja no índice (copiado à mão ou gravado antes do índice existir) é lido uma vez com SaveFormat.readSummary,
+ * que só lê o cabeçalho.
+ *
+ * <pre>
+ *   int MAGIC ("JIDX"); short versão; int n
+ *   n x { UTF nome; long seed; float tempo de jogo; long gravado em; int tamanho x, y, z; float x, y, z do jogador }
+ * </pre>
+ */
+public final class SaveIndex {
+    private static final int MAGIC = 0x4A494458; // "JIDX"
+    private static final int VERSION = 1;
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM HH:mm").withZone(ZoneId.systemDefault());
+
+    // Resumo de um save para o menu de load
+    public static class Entry {
+        public final String name;
+        public long seed;
+        public float playTime;
+        public long savedAt;
+        public int sizeX, sizeY, sizeZ;
+        public float playerX, playerY, playerZ;
+
+        public Entry(String name) { this.name = name; }
+
+        static Entry of(String name, GameSaveData data) {
+            Entry e = new Entry(name);
+            e.seed = data.worldSeed;
+            e.playTime = data.playTime;
+            e.savedAt = data.savedAt;
+            e.sizeX = data.worldSizeX; e.sizeY = data.worldSizeY; e.sizeZ = data.worldSizeZ;
+            e.playerX = data.playerX; e.playerY = data.playerY; e.playerZ = data.playerZ;
+            return e;
+        }
+
+        @Override
+        public String toString() {
+            int minutes = (int) (playTime / 60f);
+            StringBuilder sb = new StringBuilder(name);
+            if (savedAt > 0) sb.append("  ").append(DATE.format(Instant.ofEpochMilli(savedAt)));
+            sb.append("  ").append(minutes / 60).append("h").append(String.format("%02d", minutes % 60));
+            if (sizeX > 0) sb.append("  ").append(sizeX).append("x").append(sizeY).append("x").append(sizeZ);
+            sb.append("  seed ").append(seed);
+            sb.append(String.format("  (%.0f, %.0f, %.0f)", playerX, playerY, playerZ));
+            return sb.toString();
+        }
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean loaded = false;
+
+    SaveIndex(Path file) {
+        this.file = file;
+    }
+
+    // Chamado pela thread de escrita depois de um save ou patch
+    synchronized void put(String name, GameSaveData data) throws IOException {
+        load();
+        entries.put(name, Entry.of(name, data));
+        write();
+    }
+
+    // Entradas dos saves dados, pela mesma ordem; os que faltam no índice são lidos do cabeçalho do .dat
+    synchronized List<Entry> list(List<String> names, Path saveDir) {
+        load();
+        boolean changed = entries.keySet().retainAll(names); // saves apagados
+        List<Entry> result = new ArrayList<>();
+        for (String name : names) {
+            Entry e = entries.get(name);
+            if (e == null) {
+                e = readEntry(name, saveDir.resolve(name + ".dat"));
+                entries.put(name, e);
+                changed = true;
+            }
+            result.add(e);
+        }
+        if (changed) {
+            try {
+                write();
+            } catch (IOException ex) {
+                System.out.println("SaveIndex: erro ao gravar o índice: " + ex.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private static Entry readEntry(String name, Path dat) {
+        try (FileChannel channel = FileChannel.open(dat, StandardOpenOption.READ)) {
+            GameSaveData data = SaveFormat.readSummary(channel);
+            Entry e = data != null ? Entry.of(name, data) : new Entry(name); // save antigo em GZIP: só o nome
+            if (e.savedAt == 0) e.savedAt = Files.getLastModifiedTime(dat).toMillis();
+            return e;
+        } catch (IOException ex) {
+            return new Entry(name);
+        }
+    }
+
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        if (!Files.exists(file)) return;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) return;
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                Entry e = new Entry(in.readUTF());
+                e.seed = in.readLong();
+                e.playTime = in.readFloat();
+                e.savedAt = in.readLong();
+                e.sizeX = in.readInt(); e.sizeY = in.readInt(); e.sizeZ = in.readInt();
+                e.playerX = in.readFloat(); e.playerY = in.readFloat(); e.playerZ = in.readFloat();
+                entries.put(e.name, e);
+            }
+        } catch (IOException ex) {
+            entries.clear(); // índice estragado: volta a ser construído a partir dos cabeçalhos
+        }
+    }
+
+    private void write() throws IOException {
+        Files.createDirectories(file.getParent());
+        SaveManager.writeAtomically(file, raw -> {
+            DataOutputStream out = new DataOutputStream(raw);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(entries.size());
+            for (Entry e : entries.values()) {
+                out.writeUTF(e.name);
+                out.writeLong(e.seed);
+                out.writeFloat(e.playTime);
+                out.writeLong(e.savedAt);
+                out.writeInt(e.sizeX); out.writeInt(e.sizeY); out.writeInt(e.sizeZ);
+                out.writeFloat(e.playerX); out.writeFloat(e.playerY); out.writeFloat(e.playerZ);
+            }
+            out.flush();
+        });
+    }
+}
@@ -1,63 +1,172 @@
 package jogo.system;
 
+import jogo.voxel.WorldSnapshot;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 // Classe responsável por salvar e carregar o estado do jogo
 public class SaveManager {
 
-    private static final String SAVE_DIR = "saves/";
+    static final String SAVE_DIR = "saves/";
 
-    public static void saveGame(String saveName, GameSaveData data) {
-        // Executar numa nova Thread para o jogo não travar enquanto grava
-        new Thread(() -> {
-            try {
-                if (!Files.exists(Paths.get(SAVE_DIR))) {
-                    Files.createDirectories(Paths.get(SAVE_DIR));
-                }
+    // Uma só thread escreve os saves, pela ordem em que foram pedidos (saves completos e patches do autosave)
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SaveWriter");
+        t.setDaemon(true); // ao fechar, PlayerAppState espera pelas escritas pendentes (ver awaitPendingWrites)
+        return t;
+    });
+    // Escritas pedidas e ainda não terminadas (o autosave espera por elas)
+    private static final AtomicInteger pendingWrites = new AtomicInteger();
+    // Resumo de cada save para o menu de load
+    private static final SaveIndex index = new SaveIndex(Paths.get(SAVE_DIR + "index.bin"));
 
-                String path = SAVE_DIR + saveName + ".dat";
-                FileOutputStream fos = new FileOutputStream(path); //fluxo de saída para o ficheiro
-                // --- Uso de GZIP para comprimir o ficheiro ---
-                GZIPOutputStream gzip = new GZIPOutputStream(fos); //comprime os dados
-                ObjectOutputStream oos = new ObjectOutputStream(gzip); //escreve objetos
+    /**
+     * Grava o save completo na thread de escrita. data e world têm de ser cópias (ver PlayerAppState.fillGameState
+     * e VoxelWorld.snapshotForSave): o jogo continua a correr enquanto o ficheiro é escrito.
+     * onDone recebe true/false na thread de escrita quando o ficheiro estiver no disco (pode ser null).
+     *
+     * Um crash a meio não estraga o save anterior: as regiões vão para uma geração nova da pasta de regiões,
+     * o .dat é escrito num ficheiro temporário e só o rename atómico o troca pelo anterior. As gerações
+     * antigas das regiões só são apagadas depois disso.
+     */
+    public static void saveGame(String saveName, GameSaveData data, WorldSnapshot world, Consumer<Boolean> onDone) {
+        submit(onDone, () -> {
+            if (!Files.exists(Paths.get(SAVE_DIR))) {
+                Files.createDirectories(Paths.get(SAVE_DIR));
+            }
+            if (world != null) world.writeTo(data);
+            RegionStore.write(regionDir(saveName), data); // os chunks vão para as regiões, o .dat fica só com o resto
 
-                oos.writeObject(data);
+            Path path = Paths.get(SAVE_DIR + saveName + ".dat");
+            // Formato binário versionado (ver SaveFormat)
+            writeAtomically(path, out -> SaveFormat.write(data, out));
+            RegionStore.deleteOtherGenerations(regionDir(saveName), data.regionGeneration);
+            index.put(saveName, data);
+            System.out.println("Jogo salvo com sucesso em: " + path);
+        });
+    }
 
-                oos.close();
-                gzip.close();
-                fos.close();
+    // Acrescenta um patch do autosave ao fim do save (ver SaveFormat.writePatch), também na thread de escrita
+    public static void appendPatch(String saveName, GameSaveData data, WorldSnapshot world, Consumer<Boolean> onDone) {
+        submit(onDone, () -> {
+            if (world != null) world.writeTo(data);
+            int bytes;
+            try (FileOutputStream file = new FileOutputStream(SAVE_DIR + saveName + ".dat", true)) {
+                OutputStream out = new BufferedOutputStream(file);
+                bytes = SaveFormat.writePatch(data, out);
+                out.flush();
+                file.getFD().sync();
+            }
+            index.put(saveName, data);
+            System.out.println("Autosave: " + (data.chunkVoxels.size() + data.chunkEdits.size()) + " chunks, " + bytes + " bytes");
+        });
+    }
+
+    interface SaveTask {
+        void run() throws IOException;
+    }
 
-                System.out.println("Jogo salvo com sucesso em: " + path);
-            } catch (IOException e) {
+    interface StreamWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    // Escreve num ficheiro temporário ao lado do destino, força-o para o disco e troca-o pelo destino com um rename atómico
+    static void writeAtomically(Path target, StreamWriter writer) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            writer.write(out);
+            out.flush();
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Corre a tarefa na thread de escrita (pela ordem de chegada)
+    static void submit(Consumer<Boolean> onDone, SaveTask task) {
+        pendingWrites.incrementAndGet();
+        writer.execute(() -> {
+            boolean ok = false;
+            try {
+                task.run();
+                ok = true;
+            } catch (IOException | RuntimeException e) {
                 e.printStackTrace();
+            } finally {
+                pendingWrites.decrementAndGet();
             }
-        }).start();
+            if (onDone != null) onDone.accept(ok);
+        });
     }
 
-    // Carrega os dados do jogo a partir de um ficheiro de save
-    public static GameSaveData loadGame(String saveName) {
+    public static boolean isSaving() { return pendingWrites.get() > 0; }
+
+    // Espera que as escritas já pedidas terminem (antes de ler um save ou ao fechar o jogo)
+    public static void awaitPendingWrites() {
         try {
-            String path = SAVE_DIR + saveName + ".dat";
-            FileInputStream fis = new FileInputStream(path); //fluxo de entrada do ficheiro
-            // --- MELHORIA: Ler com GZIP ---
-            GZIPInputStream gzip = new GZIPInputStream(fis); //descomprime os dados
-            ObjectInputStream ois = new ObjectInputStream(gzip); //lê objetos
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
 
-            GameSaveData data = (GameSaveData) ois.readObject(); //ler o objeto salvo
+    // Pasta com as regiões do save (ver RegionStore)
+    public static Path regionDir(String saveName) {
+        return Paths.get(SAVE_DIR + saveName + ".regions");
+    }
 
-            ois.close();
-            gzip.close();
-            fis.close();
+    public static boolean saveExists(String saveName) {
+        return Files.exists(Paths.get(SAVE_DIR + saveName + ".dat"));
+    }
 
+    // Carrega os dados do jogo a partir de um ficheiro de save
+    public static GameSaveData loadGame(String saveName) {
+        awaitPendingWrites(); // um save ainda na fila tem de chegar ao disco antes de ser lido
+        try {
+            Path path = Paths.get(SAVE_DIR + saveName + ".dat");
+            // Saves do formato antigo (Java serialization + GZIP) são convertidos uma vez
+            if (LegacySaveMigrator.isLegacy(path)) {
+                System.out.println("A converter save antigo: " + path);
+                return LegacySaveMigrator.migrate(path);
+            }
+            ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path));
+            GameSaveData data = SaveFormat.read(file);
+            int valid = SaveFormat.validLength(file);
+            if (valid < file.limit()) {
+                // Patch do autosave incompleto (crash a meio): corta-o para os patches seguintes voltarem a ser lidos
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+            if (data.regionSize > 0) data.regions = RegionStore.open(regionDir(saveName), data.regionGeneration);
+            data.journalEdits = EditJournal.readAll(saveName);
             return data;
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             System.out.println("Erro ao carregar save: " + e.getMessage());
             return null;
         }
@@ -81,16 +190,17 @@ public class SaveManager {
         return saves;
     }
 
+    // Saves de getSaveList (pela mesma ordem) com o resumo do índice, para o menu de load
+    public static List<SaveIndex.Entry> getSaveInfos() {
+        return index.list(getSaveList(), Paths.get(SAVE_DIR));
+    }
+
     // --- Gerar nome único ---
+    // Uma só listagem da pasta em vez de um File.exists por cada nome já usado
     public static String generateUniqueSaveName() {
+        Set<String> used = new HashSet<>(getSaveList());
         int id = 1;
-        while (true) {
-            String potentialName = "mundo_" + id;
-            File f = new File(SAVE_DIR + potentialName + ".dat");
-            if (!f.exists()) {
-                return potentialName;
-            }
-            id++;
-        }
+        while (used.contains("mundo_" + id)) id++;
+        return "mundo_" + id;
     }
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+package jogo.voxel;
+
+import com.jme3.asset.DesktopAssetManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Relatório das cavernas interpoladas (corre sem janela): para cada passo de VoxelWorld.setCaveStep compara
+ * o mundo gerado com o das cavernas exatas (passo 1) e conta os vóxeis da faixa das cavernas escavados só num
+ * dos dois, mais o tempo de generateLayers.
+ * Para cada passo grava cave-diff-step<N>.png: em cima o mapa visto de cima (vermelho = vóxeis escavados só
+ * no exato, azul = só no interpolado, mais intenso quantos mais na coluna) e em baixo o corte vertical em
+ * z = centro (cinzento = sólido nos dois, preto = ar nos dois, vermelho/azul como em cima).
+ * Argumentos opcionais: os passos a comparar (por defeito 2 4 8).
+ */
+public class CaveInterpolationReport {
+    private static final int SIZE_X = 256, SIZE_Y = 64, SIZE_Z = 256;
+    private static final long SEED = 12345L;
+    private static final int CAVE_BAND = 20; // y < 20, como em VoxelWorld
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        Logger.getLogger("").setLevel(Level.SEVERE); // sem os avisos dos loaders do AssetManager
+        int[] steps = args.length == 0 ? new int[] { 2, 4, 8 } : new int[args.length];
+        for (int i = 0; i < args.length; i++) steps[i] = Integer.parseInt(args[i]);
+
+        double[] exactTime = new double[1];
+        byte[] exact = generate(1, exactTime);
+        long exactCarved = 0;
+        for (int x = 0; x < SIZE_X; x++)
+            for (int y = 1; y < CAVE_BAND; y++)
+                for (int z = 0; z < SIZE_Z; z++)
+                    if (isCarved(exact, x, y, z)) exactCarved++;
+        System.out.printf("Passo 1 (exato): %d vóxeis escavados, generateLayers %.1f ms%n%n", exactCarved, exactTime[0]);
+        System.out.println("passo | só exato | só interpolado | diferença | outros vóxeis diferentes | generateLayers");
+
+        for (int step : steps) {
+            double[] time = new double[1];
+            byte[] approx = generate(step, time);
+            long onlyExact = 0, onlyApprox = 0, other = 0;
+            BufferedImage image = new BufferedImage(SIZE_X, SIZE_Z + 1 + SIZE_Y, BufferedImage.TYPE_INT_RGB);
+
+            for (int x = 0; x < SIZE_X; x++) {
+                for (int z = 0; z < SIZE_Z; z++) {
+                    int red = 0, blue = 0;
+                    for (int y = 0; y < SIZE_Y; y++) {
+                        int i = index(x, y, z);
+                        if (exact[i] == approx[i]) continue;
+                        boolean e = isCarved(exact, x, y, z), a = isCarved(approx, x, y, z);
+                        if (e && !a) red++;
+                        else if (a && !e) blue++;
+                        else other++; // minérios e árvores que mudaram por causa das cavernas
+                    }
+                    onlyExact += red;
+                    onlyApprox += blue;
+                    image.setRGB(x, z, rgb(Math.min(255, red * 64), 0, Math.min(255, blue * 64)));
+                }
+                for (int y = 0; y < SIZE_Y; y++) {
+                    int i = index(x, y, SIZE_Z / 2);
+                    int color;
+                    if (exact[i] == approx[i]) color = exact[i] == VoxelPalette.AIR_ID ? rgb(0, 0, 0) : rgb(110, 110, 110);
+                    else if (isCarved(exact, x, y, SIZE_Z / 2)) color = rgb(255, 0, 0);
+                    else if (isCarved(approx, x, y, SIZE_Z / 2)) color = rgb(0, 80, 255);
+                    else color = rgb(255, 255, 0);
+                    image.setRGB(x, SIZE_Z + SIZE_Y - y, color);
+                }
+            }
+            File file = new File("cave-diff-step" + step + ".png");
+            ImageIO.write(image, "png", file);
+            System.out.printf("  %3d | %8d | %14d | %8.2f%% | %24d | %.1f ms (%s)%n", step, onlyExact, onlyApprox,
+                    100.0 * (onlyExact + onlyApprox) / Math.max(1, exactCarved), other, time[0], file.getName());
+        }
+        System.out.println("\ndiferença = vóxeis escavados só num dos dois, em % dos escavados no exato");
+    }
+
+    // Gera o mundo com o passo dado e devolve todas as células (índice de index()); time[0] = melhor tempo
+    private static byte[] generate(int step, double[] time) {
+        byte[] cells = null;
+        time[0] = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            VoxelWorld world = new VoxelWorld(new DesktopAssetManager(true), SIZE_X, SIZE_Y, SIZE_Z);
+            world.setCaveStep(step);
+            long t0 = System.nanoTime();
+            world.generateLayers(SEED);
+            time[0] = Math.min(time[0], (System.nanoTime() - t0) / 1e6);
+            if (cells == null) {
+                cells = new byte[SIZE_X * SIZE_Y * SIZE_Z];
+                for (int x = 0; x < SIZE_X; x++)
+                    for (int y = 0; y < SIZE_Y; y++)
+                        for (int z = 0; z < SIZE_Z; z++) cells[index(x, y, z)] = world.getBlock(x, y, z);
+            }
+            world.shutdown();
+        }
+        return cells;
+    }
+
+    // Ar na faixa das cavernas com terreno por cima (na superfície e fora da ilha o ar não é caverna)
+    private static boolean isCarved(byte[] cells, int x, int y, int z) {
+        if (y < 1 || y >= CAVE_BAND || cells[index(x, y, z)] != VoxelPalette.AIR_ID) return false;
+        for (int above = y + 1; above < SIZE_Y; above++) {
+            byte id = cells[index(x, above, z)];
+            if (id == VoxelPalette.GRASS_ID || id == VoxelPalette.DIRT_ID) return true;
+        }
+        return false;
+    }
+
+    private static int index(int x, int y, int z) { return (x * SIZE_Y + y) * SIZE_Z + z; }
+
+    private static int rgb(int r, int g, int b) { return (r << 16) | (g << 8) | b; }
+}
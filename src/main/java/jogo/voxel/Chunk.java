@@ -1,16 +1,18 @@
 package jogo.voxel;
 
-import com.jme3.asset.AssetManager;
 import com.jme3.bullet.PhysicsSpace;
-import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
 import com.jme3.bullet.control.RigidBodyControl;
-import com.jme3.bullet.util.CollisionShapeFactory;
-import com.jme3.material.Material;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
-import jogo.framework.math.Vec3;
 
+import jogo.system.SaveFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,109 +21,530 @@ import java.util.Map;
  */
 public class Chunk {
     public static final int SIZE = 16;
+    public static final int SLAB = SIZE * SIZE;     // vóxeis numa camada de x constante
+    public static final int VOLUME = SLAB * SIZE;   // vóxeis no chunk inteiro
+    public static final int PADDED = SIZE + 2;      // lado do snapshot com a casca de 1 vóxel dos vizinhos
+    public static final int PADDED_VOLUME = PADDED * PADDED * PADDED;
+    // Sufixo do nome da Geometry que junta todos os blocos com camada no texture array
+    private static final String LAYERED_SUFFIX = "layers";
     private final int chunkX, chunkY, chunkZ;
-    private final byte[][][] vox;
+
+    // Armazenamento contíguo: índice = (x * SIZE + y) * SIZE + z (ver index()).
+    // null enquanto o chunk for uniforme (todas as células = uniformId): o array só é alocado na primeira
+    // escrita de um bloco diferente e volta a ser libertado quando o chunk fica outra vez todo igual.
+    private byte[] vox;
+    private byte uniformId = VoxelPalette.AIR_ID;
+    // true se vox foi entregue a um ChunkSnapshot: a próxima escrita trabalha numa cópia (copy-on-write)
+    private boolean shared = false;
+    // Conteúdo de um chunk frio comprimido em runs (SaveFormat.encodeChunk); enquanto existe, vox é null.
+    // Qualquer acesso ao conteúdo volta a expandi-lo (ver ColdChunkCache)
+    private byte[] packed;
+    // Com store (mundo OFF_HEAP) as células ficam num slot de uma slab direta em vez de vox; o layout é o mesmo.
+    // Os snapshots destes chunks são cópias (o slot é reescrito no sítio)
+    private final OffHeapChunkStore store;
+    private int slot = -1;
+    private ByteBuffer slab;
+    private int base;
+
+    // MeshBuilders de cada thread que constrói malhas (os workers do ChunkMesher e a thread de update), por id sem
+    // sinal e o partilhado do texture array em LAYERED_SLOT: os arrays que já cresceram servem para as malhas seguintes
+    private static final int LAYERED_SLOT = 256;
+    private static final ThreadLocal<MeshBuilder[]> threadBuilders = ThreadLocal.withInitial(() -> new MeshBuilder[257]);
+
+    // Ocupação: número de células de cada id (a soma é sempre VOLUME)
+    private final int[] typeCounts = new int[256];
+
     private final Node node;
 
     // Dirty flag to indicate if the chunk needs to be rebuilt
     private boolean dirty = true;
 
+    // Incrementa a cada markDirty; as malhas construídas em background guardam a revisão do seu snapshot
+    // e só são aplicadas se ainda for a mais recente (lida pelas threads de meshing, daí volatile)
+    private volatile int revision = 0;
+
+    // Incrementa a cada alteração do conteúdo; o VoxelWorld compara-o com o valor do último save
+    // para o autosave só escrever os chunks alterados desde então
+    private int modCount = 0;
+
+    // Índice do chunk num mundo sem limites (VoxelWorld.chunkIndex), reaproveitado depois de ser descarregado
+    private int worldIndex = -1;
+
     // Physics control for the chunk
     private RigidBodyControl rigidBody;
 
+    // Estatísticas da última malha/colisão construída
+    private int vertexCount, triangleCount, collisionBoxCount, geometryCount;
+
     public Chunk(int chunkX, int chunkY, int chunkZ) {
+        this(chunkX, chunkY, chunkZ, null);
+    }
+
+    public Chunk(int chunkX, int chunkY, int chunkZ, OffHeapChunkStore store) {
+        this.store = store;
         this.chunkX = chunkX;
         this.chunkY = chunkY;
         this.chunkZ = chunkZ;
-        this.vox = new byte[SIZE][SIZE][SIZE];
+        this.typeCounts[VoxelPalette.AIR_ID] = VOLUME;
         this.node = new Node("Chunk_" + chunkX + "," + chunkY + "," + chunkZ);
     }
 
     public Node getNode() { return node; }
-    public byte get(int x, int y, int z) { return vox[x][y][z]; }
-    public void set(int x, int y, int z, byte id) { vox[x][y][z] = id; }
+
+    public byte get(int x, int y, int z) {
+        if (vox != null) return vox[index(x, y, z)];
+        if (slot >= 0) return slab.get(base + index(x, y, z));
+        if (packed == null) return uniformId;
+        unpack();
+        return get(x, y, z);
+    }
+
+    public void set(int x, int y, int z, byte id) {
+        if (packed != null) unpack();
+        int i = index(x, y, z);
+        byte old = hasCells() ? cell(i) : uniformId;
+        if (old == id) return;
+        expand();
+        if (vox != null) vox[i] = id;
+        else slab.put(base + i, id);
+        modCount++;
+        typeCounts[Byte.toUnsignedInt(old)]--;
+        typeCounts[Byte.toUnsignedInt(id)]++;
+        compactIfUniform(id);
+    }
     public int getChunkX() { return chunkX; }
     public int getChunkY() { return chunkY; }
     public int getChunkZ() { return chunkZ; }
 
-    public void markDirty() { dirty = true; }
+    // Layout fixo do array linear: z é o eixo mais rápido, depois y, depois x
+    public static int index(int x, int y, int z) { return (x * SIZE + y) * SIZE + z; }
+
+    // Índice no snapshot PADDED^3 para coordenadas locais entre -1 e SIZE (mesma ordem que index())
+    public static int paddedIndex(int x, int y, int z) { return ((x + 1) * PADDED + (y + 1)) * PADDED + (z + 1); }
+
+    // Deslocamento no snapshot até ao vizinho do outro lado de cada face
+    private static int paddedOffset(MeshBuilder.Face face) {
+        return (face.dx * PADDED + face.dy) * PADDED + face.dz;
+    }
+
+    // --- Ocupação e chunks uniformes ---
+
+    // true se todas as células têm o mesmo id (getUniformId); nesse caso não existe array de vóxeis
+    public boolean isUniform() { return !hasCells() && packed == null; }
+    public byte getUniformId() { return uniformId; }
+
+    // true se o chunk só tem ar
+    public boolean isEmpty() { return typeCounts[VoxelPalette.AIR_ID] == VOLUME; }
+    public int getNonAirCount() { return VOLUME - typeCounts[VoxelPalette.AIR_ID]; }
+    public int getTypeCount(byte id) { return typeCounts[Byte.toUnsignedInt(id)]; }
+
+    // true se as células estão guardadas (em vox ou num slot off-heap)
+    private boolean hasCells() { return vox != null || slot >= 0; }
+
+    private byte cell(int i) { return vox != null ? vox[i] : slab.get(base + i); }
+
+    // Prepara as células para uma escrita: aloca o array (ou o slot) de um chunk uniforme ou copia o que está num snapshot
+    private void expand() {
+        if (packed != null) unpack();
+        if (slot >= 0) return;
+        if (vox != null) {
+            if (shared) {
+                vox = vox.clone();
+                shared = false;
+            }
+            return;
+        }
+        if (store != null) {
+            allocateSlot();
+            for (int i = 0; i < VOLUME; i++) slab.put(base + i, uniformId); // o slot pode vir de outro chunk
+            return;
+        }
+        vox = new byte[VOLUME];
+        if (uniformId != VoxelPalette.AIR_ID) Arrays.fill(vox, uniformId);
+    }
+
+    private void allocateSlot() {
+        slot = store.allocate();
+        slab = store.slab(slot);
+        base = OffHeapChunkStore.base(slot);
+    }
+
+    private void releaseSlot() {
+        if (slot < 0) return;
+        store.release(slot);
+        slot = -1;
+        slab = null;
+    }
+
+    // Liberta o array se o id dado ocupar agora o chunk inteiro
+    private void compactIfUniform(byte id) {
+        if (typeCounts[Byte.toUnsignedInt(id)] != VOLUME) return;
+        vox = null;
+        releaseSlot();
+        shared = false;
+        uniformId = id;
+    }
+
+    // Recalcula as contagens depois de uma cópia em bloco
+    private void recount() {
+        Arrays.fill(typeCounts, 0);
+        for (int i = 0; i < VOLUME; i++) typeCounts[Byte.toUnsignedInt(cell(i))]++;
+        compactIfUniform(cell(0));
+    }
+
+    // --- Compressão em memória (chunks frios) ---
+
+    public boolean isPacked() { return packed != null; }
+    // true se o chunk ocupa um array (ou slot) de VOLUME bytes (nem uniforme nem comprimido)
+    public boolean isExpanded() { return hasCells(); }
+    public boolean isOffHeap() { return slot >= 0; }
+    public int getPackedSize() { return packed == null ? 0 : packed.length; }
+
+    // Comprime o conteúdo e liberta o array; false se o chunk não tiver array ou se não compensar
+    public boolean pack() {
+        if (!hasCells()) return false;
+        byte[] cells = vox;
+        if (cells == null) {
+            cells = new byte[VOLUME];
+            slab.get(base, cells, 0, VOLUME);
+        }
+        byte[] encoded = SaveFormat.encodeChunk(cells);
+        if (encoded.length > VOLUME / 2) return false;
+        packed = encoded;
+        vox = null;
+        releaseSlot();
+        shared = false; // um snapshot que ainda tenha o array antigo continua com ele
+        return true;
+    }
+
+    // Volta a expandir o conteúdo (o modCount não muda: o conteúdo é o mesmo)
+    public void unpack() {
+        if (packed == null) return;
+        byte[] cells;
+        try {
+            cells = SaveFormat.decodeChunk(ByteBuffer.wrap(packed));
+        } catch (IOException e) {
+            throw new IllegalStateException("Chunk comprimido inválido", e); // fomos nós que o codificámos
+        }
+        packed = null;
+        if (store == null) {
+            vox = cells;
+            return;
+        }
+        allocateSlot();
+        slab.put(base, cells, 0, VOLUME);
+    }
+
+    // --- Acesso em bloco ---
+
+    // Snapshot O(1) do conteúdo atual (partilha o array até à próxima escrita); pode ser lido noutra thread.
+    // Um chunk comprimido não é expandido: o snapshot fica com os bytes comprimidos, que são imutáveis
+    public ChunkSnapshot snapshot() {
+        if (packed != null) return new ChunkSnapshot(chunkX, chunkY, chunkZ, packed);
+        if (slot >= 0) {
+            byte[] copy = new byte[VOLUME];
+            slab.get(base, copy, 0, VOLUME);
+            return new ChunkSnapshot(chunkX, chunkY, chunkZ, copy, uniformId);
+        }
+        if (vox != null) shared = true;
+        return new ChunkSnapshot(chunkX, chunkY, chunkZ, vox, uniformId);
+    }
+
+    // Copia o chunk inteiro (VOLUME bytes, layout de index()) para dst
+    public void copyTo(byte[] dst) {
+        if (packed != null) unpack();
+        if (vox != null) System.arraycopy(vox, 0, dst, 0, VOLUME);
+        else if (slot >= 0) slab.get(base, dst, 0, VOLUME);
+        else Arrays.fill(dst, 0, VOLUME, uniformId);
+    }
+
+    // Substitui o chunk inteiro pelos VOLUME bytes de src
+    public void copyFrom(byte[] src) {
+        expand();
+        if (vox != null) System.arraycopy(src, 0, vox, 0, VOLUME);
+        else slab.put(base, src, 0, VOLUME);
+        modCount++;
+        recount();
+    }
+
+    // Copia a camada x (SLAB bytes, índice = y * SIZE + z) para dst
+    public void copySlabTo(int x, byte[] dst) {
+        if (packed != null) unpack();
+        if (vox != null) System.arraycopy(vox, x * SLAB, dst, 0, SLAB);
+        else if (slot >= 0) slab.get(base + x * SLAB, dst, 0, SLAB);
+        else Arrays.fill(dst, 0, SLAB, uniformId);
+    }
+
+    // Substitui a camada x pelos SLAB bytes de src
+    public void copySlabFrom(int x, byte[] src) {
+        expand();
+        int start = x * SLAB;
+        for (int i = 0; i < SLAB; i++) {
+            typeCounts[Byte.toUnsignedInt(cell(start + i))]--;
+            typeCounts[Byte.toUnsignedInt(src[i])]++;
+        }
+        if (vox != null) System.arraycopy(src, 0, vox, start, SLAB);
+        else slab.put(base + start, src, 0, SLAB);
+        modCount++;
+        compactIfUniform(src[0]);
+    }
+
+    // Preenche o chunk inteiro com o mesmo bloco (fica uniforme, sem array)
+    public void fill(byte id) {
+        vox = null;
+        releaseSlot();
+        packed = null;
+        shared = false;
+        uniformId = id;
+        modCount++;
+        Arrays.fill(typeCounts, 0);
+        typeCounts[Byte.toUnsignedInt(id)] = VOLUME;
+    }
+
+    public void markDirty() { dirty = true; revision++; }
+    public int getRevision() { return revision; }
+    public int getModCount() { return modCount; }
+    int getWorldIndex() { return worldIndex; }
+    void setWorldIndex(int worldIndex) { this.worldIndex = worldIndex; }
     public boolean isDirty() { return dirty; }
     public void clearDirty() { dirty = false; }
 
-    // Build and attach mesh for this chunk
-    public void buildMesh(AssetManager assetManager, VoxelPalette palette) {
-        long start = System.nanoTime();
+    public int getVertexCount() { return vertexCount; }
+    public int getTriangleCount() { return triangleCount; }
+    public int getCollisionBoxCount() { return collisionBoxCount; }
+    public int getGeometryCount() { return geometryCount; } // draw calls do chunk
+
+    // Remove a malha sem construir nada (chunk sem faces visíveis, ver VoxelWorld.hasNoVisibleFaces)
+    public void clearMesh() {
         node.detachAllChildren();
-        Map<Byte, MeshBuilder> builders = new HashMap<>();
+        geometryCount = 0;
+        vertexCount = 0;
+        triangleCount = 0;
+    }
+
+    // Build and attach mesh for this chunk.
+    // 'padded' é o snapshot PADDED^3 do chunk mais a casca dos vizinhos (VoxelWorld.snapshotPadded),
+    // para que as faces encostadas a blocos sólidos de outro chunk também sejam eliminadas.
+    public void buildMesh(MaterialRegistry materials, VoxelPalette palette, byte[] padded, boolean layered) {
+        applyMesh(buildMeshData(palette, padded, revision, layered), materials, palette);
+    }
+
+    /**
+     * Parte da construção da malha que só usa CPU: lê apenas o snapshot e a paleta, por isso pode correr
+     * numa thread de trabalho (ChunkMesher). Retorna null se o chunk for alterado entretanto (a revisão
+     * deixa de ser a do snapshot), já que o resultado seria descartado; a revisão é vista a cada fatia em x
+     * e a cada direção do greedy, para um chunk editado outra vez não gastar a construção inteira.
+     * Com 'layered', todos os blocos com camada no texture array (VoxelPalette.getLayer) partilham um só
+     * MeshBuilder; os restantes (água, lanterna acesa) continuam com um Mesh por tipo.
+     * Só há builders para os tipos que existem no chunk (typeCounts): um id do snapshot sem builder quer dizer
+     * que o chunk já mudou depois do snapshot, e a construção é cancelada.
+     */
+    public MeshData buildMeshData(VoxelPalette palette, byte[] padded, int snapshotRevision, boolean layered) {
+        MeshBuilder layeredBuilder = null;
+        // Camada de cada id no builder partilhado (-1 = builder próprio)
+        int[] layers = new int[256];
+        Arrays.fill(layers, -1);
+        // Builder de cada id (sem sinal), tirado dos da thread; null = tipo ausente do chunk
+        MeshBuilder[] builders = new MeshBuilder[256];
         for (int i = 0; i < palette.size(); i++) {
-            if (i == VoxelPalette.AIR_ID) continue;
-            MeshBuilder mb = new MeshBuilder();
-            mb.setRandomizeUV(true);
-            builders.put((byte)i, mb);
+            if (i == VoxelPalette.AIR_ID || typeCounts[i] == 0) continue;
+            if (layered && palette.getLayer((byte) i) >= 0) {
+                if (layeredBuilder == null) layeredBuilder = threadBuilder(LAYERED_SLOT);
+                layers[i] = palette.getLayer((byte) i);
+                builders[i] = layeredBuilder;
+                continue;
+            }
+            builders[i] = threadBuilder(i);
         }
+        // Tipos que usam greedy meshing são tratados à parte em buildGreedyFaces
+        // Tabelas por id (256 entradas para qualquer byte ser um índice válido)
+        boolean[] greedy = new boolean[256];
+        boolean[] solid = new boolean[256];
+        for (int t = 0; t < palette.size(); t++) {
+            greedy[t] = palette.get((byte) t).isGreedyMeshed();
+            solid[t] = t != VoxelPalette.AIR_ID && palette.get((byte) t).isSolid();
+        }
+        MeshBuilder.Face[] faces = MeshBuilder.Face.values();
+        int[] offsets = new int[faces.length];
+        for (int f = 0; f < faces.length; f++) offsets[f] = paddedOffset(faces[f]);
 
-        Map<Byte, Vec3> firstBlockPos = new HashMap<>();
-
+        // Percorre o snapshot linearmente em z (a ordem x,y,z dos ciclos coincide com paddedIndex())
         for (int x = 0; x < SIZE; x++) {
+            if (snapshotRevision != revision) return null; // o chunk voltou a mudar: desiste a meio
             for (int y = 0; y < SIZE; y++) {
-                for (int z = 0; z < SIZE; z++) {
-                    byte id = vox[x][y][z];
+                int pi = paddedIndex(x, y, 0);
+                for (int z = 0; z < SIZE; z++, pi++) {
+                    byte id = padded[pi];
 
                     // --- Permitir desenhar Água ---
                     // Só ignora se for AR
                     if (id == VoxelPalette.AIR_ID) continue;
+                    int type = Byte.toUnsignedInt(id);
+                    if (greedy[type]) continue;
 
-                    MeshBuilder builder = builders.get(id);
+                    MeshBuilder builder = builders[type];
+                    if (builder == null) return null; // tipo que typeCounts já não tem: o chunk mudou
+                    builder.setLayer(layers[type]);
                     int wx = chunkX * SIZE + x;
                     int wy = chunkY * SIZE + y;
                     int wz = chunkZ * SIZE + z;
 
-                    // Verifica vizinhos.
+                    // Verifica vizinhos (incluindo os dos chunks ao lado, via casca do snapshot).
                     // A água vai desenhar faces se o vizinho não for sólido (Ar) ou se for sólido (Terra).
-                    if (!isSolid(wx+1,wy,wz,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.PX);
-                    if (!isSolid(wx-1,wy,wz,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.NX);
-                    if (!isSolid(wx,wy+1,wz,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.PY);
-                    if (!isSolid(wx,wy-1,wz,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.NY);
-                    if (!isSolid(wx,wy,wz+1,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.PZ);
-                    if (!isSolid(wx,wy,wz-1,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.NZ);
-
-                    if (!firstBlockPos.containsKey(id)) firstBlockPos.put(id, new Vec3(wx, wy, wz));
+                    for (int f = 0; f < faces.length; f++) {
+                        if (!solid[Byte.toUnsignedInt(padded[pi + offsets[f]])]) builder.addVoxelFace(wx, wy, wz, faces[f]);
+                    }
                 }
             }
         }
 
-        // Construir Geometries e anexar ao nó
-        int geomCount = 0;
-        for (Map.Entry<Byte, MeshBuilder> entry : builders.entrySet()) {
-            MeshBuilder meshBuilder = entry.getValue();
+        if (snapshotRevision != revision) return null;
+        if (!buildGreedyFaces(builders, layers, greedy, solid, padded, snapshotRevision)) return null;
+
+        if (snapshotRevision != revision) return null; // cancelado: já existe uma edição mais recente
+
+        // Construir os Meshes (ainda sem material nem ligação à cena)
+        Map<Byte, Mesh> meshes = new HashMap<>();
+        for (int i = 0; i < builders.length; i++) {
+            MeshBuilder meshBuilder = builders[i];
+            if (meshBuilder == null || meshBuilder == layeredBuilder || meshBuilder.isEmpty()) continue;
             Mesh mesh = meshBuilder.build();
-            if (mesh.getTriangleCount() > 0) {
-                byte id = entry.getKey();
-                Geometry g = new Geometry("chunk_"+chunkX+"_"+chunkY+"_"+chunkZ+"_"+id, mesh);
-                Vec3 blockPos = firstBlockPos.getOrDefault(id, new Vec3(chunkX*SIZE, chunkY*SIZE, chunkZ*SIZE));
-
-                VoxelBlockType type = palette.get(id);
-                Material mat = type.getMaterial(assetManager, blockPos);
-                g.setMaterial(mat);
-
-                // Transparente (se for o caso)
-                if (type.isTransparent()) {
-                    g.setQueueBucket(com.jme3.renderer.queue.RenderQueue.Bucket.Transparent);
+            if (mesh.getTriangleCount() > 0) meshes.put((byte) i, mesh);
+        }
+        Mesh layeredMesh = layeredBuilder != null && !layeredBuilder.isEmpty() ? layeredBuilder.build() : null;
+        return new MeshData(this, snapshotRevision, meshes, layeredMesh);
+    }
+
+    // Builder vazio da thread atual para o slot dado (id sem sinal ou LAYERED_SLOT), criado na primeira vez
+    private static MeshBuilder threadBuilder(int slot) {
+        MeshBuilder[] pool = threadBuilders.get();
+        MeshBuilder mb = pool[slot];
+        if (mb == null) {
+            mb = new MeshBuilder(slot == LAYERED_SLOT);
+            mb.setRandomizeUV(true);
+            pool[slot] = mb;
+        }
+        mb.clear();
+        return mb;
+    }
+
+    // Substitui as Geometries do chunk pelas da malha dada. Tem de correr na thread de update do jME.
+    // Os materiais vêm do registo partilhado (um por tipo de bloco, não um por chunk).
+    public void applyMesh(MeshData data, MaterialRegistry materials, VoxelPalette palette) {
+        if (data == null) return;
+        node.detachAllChildren();
+
+        // Construir Geometries e anexar ao nó
+        geometryCount = 0;
+        vertexCount = 0;
+        triangleCount = 0;
+        if (data.layeredMesh != null) {
+            // Todos os blocos opacos com camada: uma única Geometry com o material do texture array
+            Geometry g = new Geometry("chunk_"+chunkX+"_"+chunkY+"_"+chunkZ+"_"+LAYERED_SUFFIX, data.layeredMesh);
+            g.setMaterial(materials.getLayered());
+            node.attachChild(g);
+            geometryCount++;
+            vertexCount += data.layeredMesh.getVertexCount();
+            triangleCount += data.layeredMesh.getTriangleCount();
+        }
+        for (Map.Entry<Byte, Mesh> entry : data.meshes.entrySet()) {
+            Mesh mesh = entry.getValue();
+            byte id = entry.getKey();
+            Geometry g = new Geometry("chunk_"+chunkX+"_"+chunkY+"_"+chunkZ+"_"+id, mesh);
+
+            // As faces fundidas têm UVs maiores que 1: precisam da variante com a textura a repetir
+            VoxelBlockType type = palette.get(id);
+            g.setMaterial(materials.get(id, type.isGreedyMeshed() ? MaterialRegistry.TILED : 0));
+
+            // Transparente (se for o caso)
+            if (type.isTransparent()) {
+                g.setQueueBucket(com.jme3.renderer.queue.RenderQueue.Bucket.Transparent);
+            }
+
+            node.attachChild(g);
+            geometryCount++;
+            vertexCount += mesh.getVertexCount();
+            triangleCount += mesh.getTriangleCount();
+        }
+    }
+
+    // Greedy meshing: para cada direção e cada fatia do chunk constrói uma máscara 16x16 com
+    // as faces visíveis dos tipos greedy e funde células vizinhas do mesmo tipo em retângulos.
+    // false se encontrar um tipo sem builder ou se a revisão deixar de ser snapshotRevision (o chunk mudou
+    // depois do snapshot, ver buildMeshData)
+    private boolean buildGreedyFaces(MeshBuilder[] builders, int[] layers, boolean[] greedy, boolean[] solid, byte[] padded,
+                                     int snapshotRevision) {
+        byte[] mask = new byte[SLAB];
+        int[] p = new int[3];   // posição local (x,y,z)
+        int[] ext = new int[3]; // extensão do retângulo (x,y,z)
+
+        for (MeshBuilder.Face face : MeshBuilder.Face.values()) {
+            // Eixos do plano da face: u percorre as linhas da máscara, v as colunas
+            int d = face.axis;
+            int u = (d + 1) % 3;
+            int v = (d + 2) % 3;
+            int off = paddedOffset(face);
+            if (snapshotRevision != revision) return false;
+
+            for (int s = 0; s < SIZE; s++) {
+                // 1. Máscara: id do bloco se a face estiver visível, AIR_ID caso contrário
+                boolean any = false;
+                for (int j = 0; j < SIZE; j++) {
+                    for (int k = 0; k < SIZE; k++) {
+                        p[d] = s; p[u] = j; p[v] = k;
+                        int pi = paddedIndex(p[0], p[1], p[2]);
+                        byte id = padded[pi];
+                        byte m = VoxelPalette.AIR_ID;
+                        if (id != VoxelPalette.AIR_ID && greedy[Byte.toUnsignedInt(id)]
+                                && !solid[Byte.toUnsignedInt(padded[pi + off])]) {
+                            m = id;
+                            any = true;
+                        }
+                        mask[j * SIZE + k] = m;
+                    }
                 }
+                if (!any) continue;
+
+                // 2. Fundir: estende em v enquanto o tipo for igual, depois em u enquanto a linha inteira for igual
+                for (int j = 0; j < SIZE; j++) {
+                    for (int k = 0; k < SIZE; ) {
+                        byte id = mask[j * SIZE + k];
+                        if (id == VoxelPalette.AIR_ID) { k++; continue; }
 
-                node.attachChild(g);
-                geomCount++;
+                        int w = 1;
+                        while (k + w < SIZE && mask[j * SIZE + k + w] == id) w++;
+
+                        int h = 1;
+                        grow:
+                        while (j + h < SIZE) {
+                            for (int q = 0; q < w; q++) {
+                                if (mask[(j + h) * SIZE + k + q] != id) break grow;
+                            }
+                            h++;
+                        }
+
+                        p[d] = s; p[u] = j; p[v] = k;
+                        ext[d] = 1; ext[u] = h; ext[v] = w;
+                        MeshBuilder builder = builders[Byte.toUnsignedInt(id)];
+                        if (builder == null) return false;
+                        builder.setLayer(layers[Byte.toUnsignedInt(id)]);
+                        builder.addGreedyFace(
+                                chunkX * SIZE + p[0], chunkY * SIZE + p[1], chunkZ * SIZE + p[2],
+                                ext[0], ext[1], ext[2], face);
+
+                        for (int a = 0; a < h; a++) {
+                            Arrays.fill(mask, (j + a) * SIZE + k, (j + a) * SIZE + k + w, VoxelPalette.AIR_ID);
+                        }
+                        k += w;
+                    }
+                }
             }
         }
-        long end = System.nanoTime();
-        // System.out.println("Chunk mesh built...");
+        return true;
     }
 
     /**
-     * Updates the physics control for this chunk. Call after mesh rebuild.
-     */
-    /**
-     * Atualiza a física.
+     * Atualiza a física a partir dos vóxeis (não usa a malha de render).
      * Recebe 'palette' para filtrar blocos não sólidos (água).
      */
     public void updatePhysics(PhysicsSpace space, VoxelPalette palette) {
@@ -131,56 +554,108 @@ public class Chunk {
             rigidBody = null;
         }
 
-        if (node.getQuantity() > 0) {
-            // Criar um nó temporário apenas para o que é SÓLIDO
-            Node solidNode = new Node("SolidPhysicsNode");
-            boolean hasSolidBlocks = false;
+        CompoundCollisionShape shape = buildCollisionShape(palette);
+        collisionBoxCount = shape != null ? shape.countChildren() : 0;
+        if (shape != null) {
+            rigidBody = new RigidBodyControl(shape, 0f);
+            node.addControl(rigidBody);
+            space.add(rigidBody);
+        }
+    }
 
-            for (int i = 0; i < node.getQuantity(); i++) {
-                if (node.getChild(i) instanceof Geometry) {
-                    Geometry g = (Geometry) node.getChild(i);
+    /**
+     * Decompõe os blocos sólidos do chunk em caixas (greedy em 3D: estende cada caixa em z, depois em y,
+     * depois em x enquanto todos os vóxeis forem sólidos e ainda livres) e junta-as num CompoundCollisionShape
+     * em coordenadas do mundo. O interior de um chunk maciço fica numa só caixa em vez de milhares de triângulos.
+     * Retorna null se o chunk não tiver blocos sólidos.
+     */
+    public CompoundCollisionShape buildCollisionShape(VoxelPalette palette) {
+        if (isEmpty()) return null;
+        boolean[] solid = new boolean[256];
+        for (int t = 0; t < palette.size(); t++) {
+            solid[t] = t != VoxelPalette.AIR_ID && palette.get((byte) t).isSolid();
+        }
+
+        if (packed != null) unpack();
+        // Chunk uniforme: no máximo uma caixa do tamanho do chunk
+        if (!hasCells()) {
+            if (!solid[Byte.toUnsignedInt(uniformId)]) return null;
+            CompoundCollisionShape compound = new CompoundCollisionShape();
+            float half = SIZE * 0.5f;
+            compound.addChildShape(new BoxCollisionShape(half, half, half),
+                    chunkX * SIZE + half, chunkY * SIZE + half, chunkZ * SIZE + half);
+            return compound;
+        }
 
-                    // O nome da Geometry é "chunk_x_y_z_ID". Extrai o ID.
-                    String[] parts = g.getName().split("_");
-                    try {
-                        byte id = Byte.parseByte(parts[parts.length - 1]);
+        boolean[] used = new boolean[VOLUME];
+        CompoundCollisionShape compound = null;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    if (!isFreeSolid(solid, used, x, y, z)) continue;
 
-                        // SÓ adiciona à física se for sólido (Água é ignorada aqui)
-                        if (palette.get(id).isSolid()) {
-                            Geometry gClone = g.clone(false);
-                            gClone.setMesh(g.getMesh().deepClone());
-                            solidNode.attachChild(gClone);
-                            hasSolidBlocks = true;
+                    int ez = 1;
+                    while (z + ez < SIZE && isFreeSolid(solid, used, x, y, z + ez)) ez++;
+
+                    int ey = 1;
+                    growY:
+                    while (y + ey < SIZE) {
+                        for (int k = 0; k < ez; k++) {
+                            if (!isFreeSolid(solid, used, x, y + ey, z + k)) break growY;
+                        }
+                        ey++;
+                    }
+
+                    int ex = 1;
+                    growX:
+                    while (x + ex < SIZE) {
+                        for (int j = 0; j < ey; j++) {
+                            for (int k = 0; k < ez; k++) {
+                                if (!isFreeSolid(solid, used, x + ex, y + j, z + k)) break growX;
+                            }
+                        }
+                        ex++;
+                    }
+
+                    for (int i = 0; i < ex; i++) {
+                        for (int j = 0; j < ey; j++) {
+                            int base = index(x + i, y + j, z);
+                            Arrays.fill(used, base, base + ez, true);
                         }
-                    } catch (Exception e) {
-                        // Se falhar o parse, assume que é sólido por segurança
-                        Geometry gClone = g.clone(false);
-                        gClone.setMesh(g.getMesh().deepClone());
-                        solidNode.attachChild(gClone);
-                        hasSolidBlocks = true;
                     }
-                }
-            }
 
-            // Se depois de filtrar houver blocos sólidos, cria a colisão
-            if (hasSolidBlocks) {
-                CollisionShape shape = CollisionShapeFactory.createMeshShape(solidNode);
-                rigidBody = new RigidBodyControl(shape, 0f);
-                node.addControl(rigidBody);
-                space.add(rigidBody);
+                    if (compound == null) compound = new CompoundCollisionShape();
+                    compound.addChildShape(new BoxCollisionShape(ex * 0.5f, ey * 0.5f, ez * 0.5f),
+                            chunkX * SIZE + x + ex * 0.5f,
+                            chunkY * SIZE + y + ey * 0.5f,
+                            chunkZ * SIZE + z + ez * 0.5f);
+                }
             }
         }
+        return compound;
+    }
+
+    private boolean isFreeSolid(boolean[] solid, boolean[] used, int x, int y, int z) {
+        int i = index(x, y, z);
+        return !used[i] && solid[Byte.toUnsignedInt(cell(i))];
     }
-    // Helper for solid check in world coordinates
-    private boolean isSolid(int wx, int wy, int wz, VoxelPalette palette) {
-        if (wx < 0 || wy < 0 || wz < 0) return false;
-        int max = SIZE * 1000; // arbitrary large world limit
-        if (wx >= max || wy >= max || wz >= max) return false;
-        int cx = wx / SIZE, cy = wy / SIZE, cz = wz / SIZE;
-        int lx = wx % SIZE, ly = wy % SIZE, lz = wz % SIZE;
-        if (cx != chunkX || cy != chunkY || cz != chunkZ) return false; // only check within this chunk
-        if (lx < 0 || ly < 0 || lz < 0 || lx >= SIZE || ly >= SIZE || lz >= SIZE) return false;
-        byte id = vox[lx][ly][lz];
-        return id != VoxelPalette.AIR_ID && palette.get(id).isSolid();
+
+    // Resultado de buildMeshData: um Mesh por tipo de bloco (mais o Mesh partilhado do texture array, se houver),
+    // associado à revisão do snapshot usado
+    public static class MeshData {
+        private final Chunk chunk;
+        private final int revision;
+        private final Map<Byte, Mesh> meshes;
+        private final Mesh layeredMesh;
+
+        MeshData(Chunk chunk, int revision, Map<Byte, Mesh> meshes, Mesh layeredMesh) {
+            this.chunk = chunk;
+            this.revision = revision;
+            this.meshes = meshes;
+            this.layeredMesh = layeredMesh;
+        }
+
+        public Chunk getChunk() { return chunk; }
+        public int getRevision() { return revision; }
     }
 }
@@ -0,0 +1,106 @@
+package jogo.voxel;
+
+import java.util.Arrays;
+
+/**
+ * Chunks carregados de um mundo sem limites (ver VoxelWorld.unbounded), pela chave de key(cx, cy, cz).
+ * Tabela de endereçamento aberto com sondagem linear e chaves long primitivas: um get por cada getBlock não
+ * cria objetos (um HashMap&lt;Long, Chunk&gt; criava um Long por acesso fora da cache de valores pequenos).
+ * As remoções recuam as entradas seguintes do mesmo grupo (sem marcas de apagado), por isso a tabela não
+ * se degrada com o jogador a carregar e descarregar chunks durante horas.
+ * Só é usado na thread de update.
+ */
+final class ChunkMap {
+    private static final long EMPTY = -1L; // seria a chave de cy = 255, que os mundos sem limites não usam
+
+    private long[] keys;
+    private Chunk[] values;
+    private int size = 0;
+
+    ChunkMap(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) capacity <<= 1;
+        keys = new long[capacity];
+        values = new Chunk[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    // Chave de um chunk: cx e cz com 28 bits cada (com sinal, chega para todo o int das coordenadas dos blocos) e cy com 8 bits
+    static long key(int cx, int cy, int cz) {
+        return ((long) cx << 36) | ((long) (cz & 0xFFFFFFF) << 8) | (cy & 0xFF);
+    }
+
+    // Coordenadas de volta a partir da chave (com o sinal de cx e cz)
+    static int keyX(long key) { return (int) (key >> 36); }
+    static int keyZ(long key) { return (int) ((key << 28) >> 36); }
+
+    Chunk get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) return values[i];
+            if (k == EMPTY) return null;
+        }
+    }
+
+    boolean containsKey(long key) { return get(key) != null; }
+
+    void put(long key, Chunk chunk) {
+        if ((size + 1) * 2 > keys.length) rehash(keys.length * 2);
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY && keys[i] != key) i = (i + 1) & mask;
+        if (keys[i] == EMPTY) size++;
+        keys[i] = key;
+        values[i] = chunk;
+    }
+
+    Chunk remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) return null;
+            i = (i + 1) & mask;
+        }
+        Chunk removed = values[i];
+        size--;
+        // Recua as entradas seguintes que ficariam inalcançáveis com o buraco em i
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        values[i] = null;
+        return removed;
+    }
+
+    int size() { return size; }
+
+    // Chunks carregados, por nenhuma ordem em particular (cópia: pode ser usada enquanto o mapa muda)
+    Chunk[] values() {
+        Chunk[] out = new Chunk[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) if (keys[i] != EMPTY) out[n++] = values[i];
+        return out;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Chunk[] oldValues = values;
+        keys = new long[capacity];
+        values = new Chunk[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+    }
+
+    // Mistura os bits da chave (as chaves de chunks vizinhos só diferem nos bits baixos de cada coordenada)
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
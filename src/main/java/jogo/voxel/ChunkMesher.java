@@ -0,0 +1,69 @@
+package jogo.voxel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Constrói as malhas dos chunks numa pool de threads de tamanho fixo.
+ * O snapshot do chunk é tirado na thread de update; as threads de trabalho só leem o snapshot e a paleta.
+ * As malhas terminadas ficam numa fila até VoxelWorld as aplicar na thread de update.
+ */
+public class ChunkMesher {
+    private final VoxelPalette palette;
+    private final ExecutorService pool;
+
+    // Trabalho pendente por chunk (só acedido na thread de update)
+    private final Map<Chunk, Future<?>> pending = new HashMap<>();
+    private final ConcurrentLinkedQueue<Chunk.MeshData> finished = new ConcurrentLinkedQueue<>();
+
+    public ChunkMesher(VoxelPalette palette, int threads) {
+        this.palette = palette;
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "ChunkMesher-" + counter.incrementAndGet());
+            t.setDaemon(true); // não impede o jogo de fechar
+            return t;
+        });
+    }
+
+    // Agenda a construção da malha a partir do snapshot dado. Um trabalho anterior do mesmo chunk é cancelado.
+    public void submit(Chunk chunk, byte[] padded, boolean layered) {
+        int revision = chunk.getRevision();
+        Future<?> previous = pending.remove(chunk);
+        if (previous != null) previous.cancel(false);
+
+        pending.put(chunk, pool.submit(() -> {
+            if (chunk.getRevision() != revision) return; // já foi substituído por uma edição mais recente
+            Chunk.MeshData data = chunk.buildMeshData(palette, padded, revision, layered);
+            if (data != null) finished.add(data);
+        }));
+    }
+
+    // Cancela o trabalho pendente do chunk (a sua malha foi resolvida sem passar pela pool)
+    public void cancel(Chunk chunk) {
+        Future<?> previous = pending.remove(chunk);
+        if (previous != null) previous.cancel(false);
+    }
+
+    // Próxima malha terminada, ou null. Só a malha da revisão atual do chunk deve ser aplicada.
+    public Chunk.MeshData poll() {
+        Chunk.MeshData data = finished.poll();
+        if (data != null && data.getRevision() == data.getChunk().getRevision()) {
+            pending.remove(data.getChunk());
+        }
+        return data;
+    }
+
+    public int getPendingCount() { return pending.size(); }
+
+    public void shutdown() {
+        pool.shutdownNow();
+        pending.clear();
+        finished.clear();
+    }
+}
@@ -0,0 +1,58 @@
+package jogo.voxel;
+
+import jogo.system.SaveFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Cópia imutável do conteúdo de um Chunk num dado momento (ver Chunk.snapshot).
+ * O array é partilhado com o chunk até à próxima escrita, que passa a trabalhar numa cópia;
+ * por isso pode ser lido pela thread dos saves enquanto o jogo continua a editar o mundo.
+ */
+public final class ChunkSnapshot {
+    private final int chunkX, chunkY, chunkZ;
+    private final byte[] vox; // null se o chunk era uniforme ou estava comprimido
+    private final byte uniformId;
+    private final byte[] packed; // conteúdo de um chunk frio (Chunk.pack), descomprimido só em copyTo
+
+    ChunkSnapshot(int chunkX, int chunkY, int chunkZ, byte[] vox, byte uniformId) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.chunkZ = chunkZ;
+        this.vox = vox;
+        this.uniformId = uniformId;
+        this.packed = null;
+    }
+
+    ChunkSnapshot(int chunkX, int chunkY, int chunkZ, byte[] packed) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.chunkZ = chunkZ;
+        this.vox = null;
+        this.uniformId = VoxelPalette.AIR_ID;
+        this.packed = packed;
+    }
+
+    public int getChunkX() { return chunkX; }
+    public int getChunkY() { return chunkY; }
+    public int getChunkZ() { return chunkZ; }
+
+    // Chave "cx,cy,cz" usada pelo GameSaveData
+    public String key() { return chunkX + "," + chunkY + "," + chunkZ; }
+
+    // Copia o conteúdo (VOLUME bytes, layout de Chunk.index) para dst
+    public void copyTo(byte[] dst) {
+        if (packed != null) {
+            try {
+                System.arraycopy(SaveFormat.decodeChunk(ByteBuffer.wrap(packed)), 0, dst, 0, Chunk.VOLUME);
+            } catch (IOException e) {
+                throw new IllegalStateException("Chunk comprimido inválido", e);
+            }
+            return;
+        }
+        if (vox == null) Arrays.fill(dst, 0, Chunk.VOLUME, uniformId);
+        else System.arraycopy(vox, 0, dst, 0, Chunk.VOLUME);
+    }
+}
@@ -0,0 +1,122 @@
+package jogo.voxel;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Soak benchmark do armazenamento dos chunks (corre sem janela): pausas do GC com as células no heap
+ * e fora dele (VoxelWorld.Storage).
+ * Cada modo corre numa JVM própria com as mesmas opções (JVM_OPTIONS): enche um mundo grande com chunks não uniformes e depois,
+ * durante SOAK_SECONDS, edita blocos ao acaso e gera lixo de vida curta e média como um frame do jogo.
+ * Sem argumentos corre os dois modos; "HEAP" ou "OFF_HEAP" corre só um (é assim que as JVMs filhas são lançadas).
+ */
+public class ChunkStorageBenchmark {
+    private static final int SIZE_X = 2048, SIZE_Y = 128, SIZE_Z = 1024; // 65536 chunks, 256 MB de células
+    private static final int SOAK_SECONDS = 20;
+    // Heap fixo e G1 (o que a JVM escolhe num desktop): sem isto o heap cresce de maneira diferente em cada modo
+    private static final String[] JVM_OPTIONS = { "-Xms1g", "-Xmx1g", "-XX:+UseG1GC", "-XX:MaxDirectMemorySize=1g" };
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            for (VoxelWorld.Storage storage : VoxelWorld.Storage.values()) runChild(storage);
+            return;
+        }
+        soak(VoxelWorld.Storage.valueOf(args[0]));
+    }
+
+    private static void runChild(VoxelWorld.Storage storage) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        Collections.addAll(command, JVM_OPTIONS);
+        Collections.addAll(command, "-cp", System.getProperty("java.class.path"), ChunkStorageBenchmark.class.getName(), storage.name());
+        Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            for (String line; (line = in.readLine()) != null; ) {
+                if (line.startsWith("[" + storage.name() + "]")) System.out.println(line);
+            }
+        }
+        p.waitFor();
+    }
+
+    private static void soak(VoxelWorld.Storage storage) {
+        Logger.getLogger("").setLevel(Level.WARNING);
+        String tag = "[" + storage.name() + "] ";
+        List<Long> pauses = Collections.synchronizedList(new ArrayList<>());
+        long[] soakStart = { Long.MAX_VALUE }; // uptime em ms; as notificações chegam atrasadas noutra thread
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener((n, h) -> {
+                if (!n.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) return;
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) n.getUserData());
+                if (info.getGcInfo().getStartTime() >= soakStart[0]) pauses.add(info.getGcInfo().getDuration());
+            }, null, null);
+        }
+
+        // 1. Mundo cheio de chunks não uniformes (o gerador normal deixa quase tudo uniforme)
+        long t0 = System.nanoTime();
+        VoxelWorld world = new VoxelWorld(new DesktopAssetManager(true), SIZE_X, SIZE_Y, SIZE_Z, storage);
+        Random random = new Random(7);
+        byte[] cells = new byte[Chunk.VOLUME];
+        for (int i = 0; i < world.getChunkCount(); i++) {
+            for (int j = 0; j < cells.length; j++) cells[j] = random.nextInt(4) == 0 ? VoxelPalette.STONE_ID : VoxelPalette.AIR_ID;
+            world.chunkAt(i).copyFrom(cells);
+        }
+        world.clearAllDirtyFlags();
+        long heapUsed = usedHeap();
+        System.out.printf("%smundo %dx%dx%d (%d chunks) em %.1f s, heap usado %d MB%s%n", tag, SIZE_X, SIZE_Y, SIZE_Z,
+                world.getChunkCount(), (System.nanoTime() - t0) / 1e9, heapUsed >> 20,
+                world.getOffHeapStore() != null ? ", off-heap " + (world.getOffHeapStore().getCapacityBytes() >> 20) + " MB" : "");
+        soakStart[0] = ManagementFactory.getRuntimeMXBean().getUptime();
+
+        // 2. Soak: edições e lixo de um frame de jogo
+        List<byte[]> mediumLived = new ArrayList<>();
+        long frames = 0, worstFrame = 0;
+        long end = System.nanoTime() + SOAK_SECONDS * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            long f0 = System.nanoTime();
+            for (int i = 0; i < 2000; i++) {
+                int x = random.nextInt(SIZE_X), y = random.nextInt(SIZE_Y), z = random.nextInt(SIZE_Z);
+                world.setBlock(x, y, z, world.getBlock(x, y, z) == VoxelPalette.AIR_ID ? VoxelPalette.STONE_ID : VoxelPalette.AIR_ID);
+            }
+            List<float[]> garbage = new ArrayList<>();
+            for (int i = 0; i < 400; i++) garbage.add(new float[128]); // malhas, vetores, ...
+            mediumLived.add(new byte[64 * 1024]);                        // vive alguns segundos
+            if (mediumLived.size() > 600) mediumLived.remove(0);
+            world.clearAllDirtyFlags();
+            frames++;
+            worstFrame = Math.max(worstFrame, System.nanoTime() - f0);
+            if (garbage.isEmpty()) System.out.print(""); // mantém o lixo vivo até ao fim do frame
+        }
+
+        List<Long> sorted = new ArrayList<>(pauses);
+        Collections.sort(sorted);
+        long total = 0;
+        for (long p : sorted) total += p;
+        long max = sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1);
+        long p99 = sorted.isEmpty() ? 0 : sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * 0.99)));
+        System.out.printf("%s%d frames em %d s: %d GCs, total %d ms, máx %d ms, p99 %d ms, pior frame %.1f ms%n",
+                tag, frames, SOAK_SECONDS, sorted.size(), total, max, p99, worstFrame / 1e6);
+        world.shutdown();
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime r = Runtime.getRuntime();
+        return r.totalMemory() - r.freeMemory();
+    }
+}
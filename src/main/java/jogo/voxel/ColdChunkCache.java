@@ -0,0 +1,127 @@
+package jogo.voxel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compressão em memória dos chunks frios do VoxelWorld.
+ * Cada acesso a um chunk pelo mundo (getChunk, reconstrução da malha, ...) passa por touch, que marca a hora
+ * do acesso e volta a expandir um chunk comprimido. De SWEEP_SECONDS em SWEEP_SECONDS o mundo comprime
+ * (Chunk.pack) os chunks que não foram usados há coldSeconds e, se os arrays expandidos ainda ocuparem mais
+ * do que memoryBudget, também os menos usados recentemente até voltar ao orçamento.
+ * Os contadores (acertos, falhas e tempo de expansão) servem para afinar os dois parâmetros.
+ * Só é usado na thread de update.
+ */
+public class ColdChunkCache {
+    private static final float SWEEP_SECONDS = 1f;
+
+    private float coldSeconds = 30f;
+    private long memoryBudget = 32L * 1024 * 1024; // bytes dos arrays expandidos (Chunk.VOLUME cada)
+
+    private float[] lastAccess; // por chunkIndex, em segundos de clock
+    private float clock = 0f;
+    private float sweepTimer = 0f;
+
+    // Contadores
+    private long hits, misses, expandNanos, maxExpandNanos, packs;
+    // Memória no último sweep: arrays expandidos e bytes comprimidos
+    private long residentBytes, packedBytes;
+
+    ColdChunkCache(int chunkCount) {
+        this.lastAccess = new float[chunkCount];
+    }
+
+    // Mais índices de chunks (os mundos sem limites aumentam-nos quando carregam mais chunks do que cabiam)
+    void resize(int chunkCount) {
+        lastAccess = Arrays.copyOf(lastAccess, chunkCount);
+    }
+
+    // Acesso ao chunk: acerto se já estava expandido, falha (e expansão medida) se estava comprimido
+    void touch(Chunk c, int index) {
+        lastAccess[index] = clock;
+        if (!c.isPacked()) {
+            hits++;
+            return;
+        }
+        long t0 = System.nanoTime();
+        c.unpack();
+        long dt = System.nanoTime() - t0;
+        misses++;
+        expandNanos += dt;
+        if (dt > maxExpandNanos) maxExpandNanos = dt;
+    }
+
+    // Avança o relógio e, de SWEEP_SECONDS em SWEEP_SECONDS, comprime os chunks frios; devolve quantos comprimiu
+    int update(float tpf, VoxelWorld world) {
+        clock += tpf;
+        sweepTimer += tpf;
+        if (sweepTimer < SWEEP_SECONDS) return 0;
+        sweepTimer = 0f;
+        return sweep(world);
+    }
+
+    int sweep(VoxelWorld world) {
+        int packed = 0;
+        long resident = 0;
+        long packedSize = 0;
+        List<Integer> warm = new ArrayList<>();
+        for (int i = 0; i < lastAccess.length; i++) {
+            Chunk c = world.chunkAt(i);
+            if (c == null) continue; // índice livre de um mundo sem limites
+            if (!c.isExpanded()) {
+                packedSize += c.getPackedSize();
+                continue;
+            }
+            if (!c.isDirty() && clock - lastAccess[i] >= coldSeconds && c.pack()) {
+                packed++;
+                packedSize += c.getPackedSize();
+                continue;
+            }
+            resident += Chunk.VOLUME;
+            if (!c.isDirty() && clock - lastAccess[i] >= SWEEP_SECONDS) warm.add(i);
+        }
+        if (resident > memoryBudget) {
+            // Acima do orçamento: os menos usados recentemente primeiro (nunca os usados desde o último sweep)
+            warm.sort((a, b) -> Float.compare(lastAccess[a], lastAccess[b]));
+            for (int i : warm) {
+                if (resident <= memoryBudget) break;
+                Chunk c = world.chunkAt(i);
+                if (c.pack()) {
+                    packed++;
+                    resident -= Chunk.VOLUME;
+                    packedSize += c.getPackedSize();
+                }
+            }
+        }
+        packs += packed;
+        residentBytes = resident;
+        packedBytes = packedSize;
+        return packed;
+    }
+
+    public float getColdSeconds() { return coldSeconds; }
+    public void setColdSeconds(float coldSeconds) { this.coldSeconds = coldSeconds; }
+    public long getMemoryBudget() { return memoryBudget; }
+    public void setMemoryBudget(long memoryBudget) { this.memoryBudget = memoryBudget; }
+
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getPacks() { return packs; }
+    public long getResidentBytes() { return residentBytes; }
+    public long getPackedBytes() { return packedBytes; }
+    public double getAverageExpandMs() { return misses == 0 ? 0 : expandNanos / 1e6 / misses; }
+    public double getMaxExpandMs() { return maxExpandNanos / 1e6; }
+
+    public void resetCounters() {
+        hits = misses = expandNanos = maxExpandNanos = packs = 0;
+    }
+
+    @Override
+    public String toString() {
+        long total = hits + misses;
+        return String.format("Chunks frios: %d acertos, %d falhas (%.1f%%), expansão média %.3f ms (máx %.3f ms), %d compressões, %d KB expandidos, %d KB comprimidos",
+                hits, misses, total == 0 ? 0f : 100f * misses / total, getAverageExpandMs(), getMaxExpandMs(), packs,
+                residentBytes / 1024, packedBytes / 1024);
+    }
+}
@@ -0,0 +1,98 @@
+package jogo.voxel;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.control.BetterCharacterControl;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.bullet.util.CollisionShapeFactory;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.system.NativeLibraryLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark da colisão dos chunks (corre sem janela).
+ * Compara a colisão antiga (malha de render copiada para CollisionShapeFactory.createMeshShape) com as
+ * caixas de Chunk.buildCollisionShape: tempo de construção das shapes de todos os chunks e tempo médio
+ * de um passo da física com um BetterCharacterControl a andar sobre o terreno.
+ */
+public class CollisionBenchmark {
+    private static final int STEPS = 600;
+
+    public static void main(String[] args) {
+        Logger.getLogger("").setLevel(Level.WARNING); // sem os logs INFO de cada corpo criado
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+        VoxelWorld world = new VoxelWorld(new DesktopAssetManager(true), 256, 64, 256);
+        world.generateLayers();
+        world.buildMeshes();
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i < world.getChunkCount(); i++) chunks.add(world.chunkAt(i));
+
+        // 1. Construção das shapes
+        List<CollisionShape> meshShapes = new ArrayList<>();
+        long t0 = System.nanoTime();
+        for (Chunk c : chunks) {
+            Node solid = new Node();
+            for (Spatial s : c.getNode().getChildren()) {
+                Geometry g = (Geometry) s;
+                if (g.getQueueBucket() == RenderQueue.Bucket.Transparent) continue; // água
+                Geometry copy = g.clone(false);
+                copy.setMesh(g.getMesh().deepClone());
+                solid.attachChild(copy);
+            }
+            if (solid.getQuantity() > 0) meshShapes.add(CollisionShapeFactory.createMeshShape(solid));
+        }
+        double meshMs = (System.nanoTime() - t0) / 1e6;
+
+        List<CollisionShape> boxShapes = new ArrayList<>();
+        t0 = System.nanoTime();
+        for (Chunk c : chunks) {
+            CollisionShape shape = c.buildCollisionShape(world.getPalette());
+            if (shape != null) boxShapes.add(shape);
+        }
+        double boxMs = (System.nanoTime() - t0) / 1e6;
+
+        System.out.printf("Construção: malha %.1f ms, caixas %.1f ms (%d chunks)%n", meshMs, boxMs, chunks.size());
+
+        // 2. Passo da física com um personagem a andar
+        double meshStep = stepCharacter(world, meshShapes);
+        double boxStep = stepCharacter(world, boxShapes);
+        System.out.printf("Passo da física: malha %.3f ms, caixas %.3f ms (média de %d passos)%n", meshStep, boxStep, STEPS);
+
+        world.shutdown();
+    }
+
+    private static double stepCharacter(VoxelWorld world, List<CollisionShape> shapes) {
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        for (CollisionShape shape : shapes) space.add(new RigidBodyControl(shape, 0f));
+
+        int x = 128, z = 128;
+        Node player = new Node("player");
+        player.setLocalTranslation(x + 0.5f, world.getTopSolidY(x, z) + 2f, z + 0.5f);
+        BetterCharacterControl character = new BetterCharacterControl(0.4f, 1.8f, 80f);
+        player.addControl(character);
+        space.add(character);
+        character.setWalkDirection(new Vector3f(4f, 0, 3f));
+
+        // Aquecimento (o personagem assenta no chão)
+        for (int i = 0; i < 60; i++) space.update(1f / 60f);
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < STEPS; i++) {
+            space.update(1f / 60f);
+            character.update(1f / 60f); // aplica a walkDirection
+        }
+        double ms = (System.nanoTime() - t0) / 1e6 / STEPS;
+        space.destroy();
+        return ms;
+    }
+}
@@ -0,0 +1,134 @@
+package jogo.voxel;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.AssetNotFoundException;
+import com.jme3.material.MatParamTexture;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.math.ColorRGBA;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.TextureArray;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.texture.image.ImageRaster;
+import com.jme3.util.BufferUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache de materiais partilhados por tipo de bloco.
+ * Cada combinação (id do bloco, flags) cria um único Material, reutilizado por todos os chunks e itens
+ * soltos; assim o jME consegue agrupar os estados de render e as texturas só são carregadas uma vez.
+ * Só deve ser usado na thread de update.
+ */
+public class MaterialRegistry {
+    // Flags de variante do material
+    public static final int TILED = 1; // textura em WrapMode.Repeat (faces fundidas por greedy meshing)
+
+    // Lado (em píxeis) de cada camada do texture array: as camadas têm de ter todas o mesmo tamanho e formato
+    public static final int LAYER_SIZE = 256;
+
+    private final AssetManager assetManager;
+    private final VoxelPalette palette;
+    private final Map<Integer, Material> cache = new HashMap<>();
+    private Material layered; // material do texture array, criado no primeiro uso
+
+    // Flags de debug aplicadas a todos os materiais partilhados
+    private boolean wireframe = false;
+    private boolean culling = true;
+
+    public MaterialRegistry(AssetManager assetManager, VoxelPalette palette) {
+        this.assetManager = assetManager;
+        this.palette = palette;
+    }
+
+    public Material get(byte id) {
+        return get(id, 0);
+    }
+
+    public Material get(byte id, int flags) {
+        int key = (flags << 8) | Byte.toUnsignedInt(id);
+        Material m = cache.get(key);
+        if (m == null) {
+            m = palette.get(id).getMaterial(assetManager);
+            if ((flags & TILED) != 0) {
+                MatParamTexture diffuse = m.getTextureParam("DiffuseMap");
+                if (diffuse != null) diffuse.getTextureValue().setWrap(Texture.WrapMode.Repeat);
+            }
+            applyRenderFlags(m);
+            cache.put(key, m);
+        }
+        return m;
+    }
+
+    // Material único dos blocos com camada no texture array (um Mesh por chunk, ver Chunk.buildMeshData).
+    // Usa os mesmos valores de Lighting que SimpleBlockType.
+    public Material getLayered() {
+        if (layered == null) {
+            layered = new Material(assetManager, "MatDefs/VoxelArray.j3md");
+            layered.setTexture("DiffuseArray", buildTextureArray());
+            layered.setColor("Diffuse", ColorRGBA.White);
+            layered.setColor("Specular", ColorRGBA.White.mult(0.05f));
+            layered.setFloat("Shininess", 16f);
+            applyRenderFlags(layered);
+        }
+        return layered;
+    }
+
+    // Muda as flags de debug e atualiza os materiais já criados (as geometrias partilham estas instâncias)
+    public void setRenderFlags(boolean wireframe, boolean culling) {
+        this.wireframe = wireframe;
+        this.culling = culling;
+        for (Material m : cache.values()) applyRenderFlags(m);
+        if (layered != null) applyRenderFlags(layered);
+    }
+
+    public int size() { return cache.size() + (layered != null ? 1 : 0); }
+
+    // Uma camada por textura de VoxelPalette.getLayerTextures(), pela mesma ordem
+    private TextureArray buildTextureArray() {
+        List<Image> images = new ArrayList<>();
+        for (String path : palette.getLayerTextures()) images.add(loadLayer(path));
+        TextureArray array = new TextureArray(images);
+        array.setWrap(Texture.WrapMode.Repeat); // faces do greedy meshing
+        array.setMagFilter(Texture.MagFilter.Bilinear);
+        array.setMinFilter(Texture.MinFilter.Trilinear);
+        return array;
+    }
+
+    // Carrega a textura e reamostra-a (vizinho mais próximo) para LAYER_SIZE x LAYER_SIZE em RGBA8.
+    // Uma textura em falta vira uma camada magenta em vez de impedir a criação do array inteiro.
+    private Image loadLayer(String path) {
+        Image layer = new Image(Image.Format.RGBA8, LAYER_SIZE, LAYER_SIZE,
+                BufferUtils.createByteBuffer(LAYER_SIZE * LAYER_SIZE * 4), ColorSpace.sRGB);
+        ImageRaster dst = ImageRaster.create(layer);
+        Image src;
+        try {
+            src = assetManager.loadTexture(path).getImage();
+        } catch (AssetNotFoundException e) {
+            System.out.println("MaterialRegistry: textura em falta " + path);
+            for (int y = 0; y < LAYER_SIZE; y++) {
+                for (int x = 0; x < LAYER_SIZE; x++) dst.setPixel(x, y, ColorRGBA.Magenta);
+            }
+            return layer;
+        }
+
+        ImageRaster in = ImageRaster.create(src);
+        ColorRGBA c = new ColorRGBA();
+        for (int y = 0; y < LAYER_SIZE; y++) {
+            int sy = y * src.getHeight() / LAYER_SIZE;
+            for (int x = 0; x < LAYER_SIZE; x++) {
+                dst.setPixel(x, y, in.getPixel(x * src.getWidth() / LAYER_SIZE, sy, c));
+            }
+        }
+        return layer;
+    }
+
+    private void applyRenderFlags(Material m) {
+        m.getAdditionalRenderState().setFaceCullMode(culling ? RenderState.FaceCullMode.Back : RenderState.FaceCullMode.Off);
+        m.getAdditionalRenderState().setWireframe(wireframe);
+    }
+}
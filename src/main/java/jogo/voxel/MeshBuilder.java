@@ -4,16 +4,45 @@ import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 
 // Utility class to build voxel meshes
+// Os vértices são escritos em arrays primitivos que crescem no heap (sem boxing nem objetos por vértice);
+// build() copia-os para um só buffer direto de tamanho exato por atributo.
 public class MeshBuilder {
-    private final List<Float> positions = new ArrayList<>(); // x,y,z
-    private final List<Float> normals = new ArrayList<>(); //Sombras
-    private final List<Float> uvs = new ArrayList<>(); //Texturas nas faces
-    private final List<Integer> indices = new ArrayList<>(); // Índices dos vértices
+    private static final int INITIAL_VERTICES = 64;
+
+    private float[] positions = new float[INITIAL_VERTICES * 3]; // x,y,z
+    private float[] normals = new float[INITIAL_VERTICES * 3]; //Sombras
+    private float[] uvs; //Texturas nas faces (u,v ou u,v,camada)
+    private int[] indices = new int[INITIAL_VERTICES / 4 * 6]; // Índices dos vértices
+    private int vertexCount = 0;
+    private int indexCount = 0;
+
+    // Modo texture array: cada vértice leva a camada da textura como 3ª coordenada de textura,
+    // para vários tipos de bloco partilharem o mesmo Mesh
+    private final boolean layered;
+    private final int uvComponents;
+    private float layer = 0f;
+
+    public MeshBuilder() {
+        this(false);
+    }
+
+    public MeshBuilder(boolean layered) {
+        this.layered = layered;
+        this.uvComponents = layered ? 3 : 2;
+        this.uvs = new float[INITIAL_VERTICES * uvComponents];
+    }
+
+    // Camada usada pelas próximas faces (ignorada se o builder não for layered)
+    public void setLayer(int layer) {
+        this.layer = layer;
+    }
 
     // If true, as texturas das faces serão randomizadas em rotação e flip
     private boolean randomizeUV = false;
@@ -22,24 +51,61 @@ public class MeshBuilder {
         this.randomizeUV = randomizeUV;
     }
 
+    public boolean isEmpty() { return vertexCount == 0; }
+
+    // Esvazia o builder sem largar os arrays (um build cancelado a meio deixa vértices para trás)
+    public void clear() {
+        vertexCount = 0;
+        indexCount = 0;
+        layer = 0f;
+    }
+    public int getVertexCount() { return vertexCount; }
+
     public int addVertex(Vector3f p, Vector3f n, Vector2f uv) {
-        int idx = positions.size() / 3; //Calcula o índice do vértice
-        positions.add(p.x); positions.add(p.y); positions.add(p.z); // Guarda posição x,y,z
-        normals.add(n.x); normals.add(n.y); normals.add(n.z); // Guarda normal x,y,z
-        uvs.add(uv.x); uvs.add(uv.y); //Guarda textura(uv)
-        return idx; // Retorna o id
+        ensureCapacity(1, 0);
+        return putVertex(p.x, p.y, p.z, n.x, n.y, n.z, uv.x, uv.y);
+    }
+
+    // Escreve um vértice nos arrays e retorna o seu índice (a capacidade já tem de estar garantida)
+    private int putVertex(float px, float py, float pz, float nx, float ny, float nz, float u, float v) {
+        int p = vertexCount * 3;
+        positions[p] = px; positions[p + 1] = py; positions[p + 2] = pz; // Guarda posição x,y,z
+        normals[p] = nx; normals[p + 1] = ny; normals[p + 2] = nz; // Guarda normal x,y,z
+        int t = vertexCount * uvComponents;
+        uvs[t] = u; uvs[t + 1] = v; //Guarda textura(uv)
+        if (layered) uvs[t + 2] = layer;
+        return vertexCount++; // Retorna o id
     }
 
+    // Garante espaço para mais 'verts' vértices e 'idx' índices, duplicando os arrays se preciso
+    private void ensureCapacity(int verts, int idx) {
+        if (positions.length < (vertexCount + verts) * 3) {
+            int cap = Math.max(positions.length / 3 * 2, vertexCount + verts);
+            positions = Arrays.copyOf(positions, cap * 3);
+            normals = Arrays.copyOf(normals, cap * 3);
+            uvs = Arrays.copyOf(uvs, cap * uvComponents);
+        }
+        if (indices.length < indexCount + idx) {
+            indices = Arrays.copyOf(indices, Math.max(indices.length * 2, indexCount + idx));
+        }
+    }
 
-    // Add a quad with explicit UVs
-    private void addQuadUV(Vector3f v0, Vector3f v1, Vector3f v2, Vector3f v3, Vector3f normal,
-                           Vector2f uv0, Vector2f uv1, Vector2f uv2, Vector2f uv3) {
-        int i0 = addVertex(v0, normal, uv0);
-        int i1 = addVertex(v1, normal, uv1);
-        int i2 = addVertex(v2, normal, uv2);
-        int i3 = addVertex(v3, normal, uv3);
-        indices.add(i0); indices.add(i1); indices.add(i2);
-        indices.add(i0); indices.add(i2); indices.add(i3);
+    // Adiciona os 4 vértices e 6 índices de uma face. Os cantos vêm de FACE_CORNERS escalados por (sx,sy,sz)
+    // e as UVs de uv[0..7] multiplicadas por (us,vs).
+    private void putQuad(Face face, float x, float y, float z, int sx, int sy, int sz,
+                         float[] uv, float us, float vs) {
+        ensureCapacity(4, 6);
+        int[] c = FACE_CORNERS[face.ordinal()];
+        float nx = face.dx, ny = face.dy, nz = face.dz;
+        int base = vertexCount;
+        for (int k = 0; k < 4; k++) {
+            putVertex(x + c[k * 3] * sx, y + c[k * 3 + 1] * sy, z + c[k * 3 + 2] * sz,
+                    nx, ny, nz, uv[k * 2] * us, uv[k * 2 + 1] * vs);
+        }
+        int i = indexCount;
+        indices[i] = base; indices[i + 1] = base + 1; indices[i + 2] = base + 2;
+        indices[i + 3] = base; indices[i + 4] = base + 2; indices[i + 5] = base + 3;
+        indexCount += 6;
     }
 
     // Transforma UV coordenadas baseado na rotation e flips
@@ -78,48 +144,29 @@ public class MeshBuilder {
     // Adiciona uma face de vóxel na posição (x,y,z) com a face especificada
     //Otimização para não desenhar faces internas não visíveis
     public void addVoxelFace(int x, int y, int z, Face face) {
-        float xf = x, yf = y, zf = z;
-
-        int rot = 0; boolean flipU = false; boolean flipV = false;
-        if (randomizeUV) {
-            int h = hash3(x, y, z);
-            rot = (h) & 3;                 // 0,1,2,3 => 0/90/180/270 deg
-            flipU = ((h >>> 2) & 1) != 0;  // boolean
-            flipV = ((h >>> 3) & 1) != 0;  // boolean
-        }
+        // Os 4 bits baixos do hash escolhem rotação (2 bits) e flips U/V (1 bit cada)
+        float[] uv = randomizeUV ? UV_TABLE[hash3(x, y, z) & 15] : UV_TABLE[0];
+        putQuad(face, x, y, z, 1, 1, 1, uv, 1f, 1f);
+    }
 
-        // Base UVs for a unit face
-        Vector2f uv00 = transformUV(new Vector2f(0f, 0f), rot, flipU, flipV);
-        Vector2f uv01 = transformUV(new Vector2f(0f, 1f), rot, flipU, flipV);
-        Vector2f uv11 = transformUV(new Vector2f(1f, 1f), rot, flipU, flipV);
-        Vector2f uv10 = transformUV(new Vector2f(1f, 0f), rot, flipU, flipV);
-
-        switch (face) {
-            case PX -> addQuadUV(
-                    new Vector3f(xf+1, yf,   zf  ), new Vector3f(xf+1, yf+1, zf  ), new Vector3f(xf+1, yf+1, zf+1), new Vector3f(xf+1, yf,   zf+1), FaceNormals.PX,
-                    uv00, uv01, uv11, uv10
-            );
-            case NX -> addQuadUV(
-                    new Vector3f(xf,   yf,   zf+1), new Vector3f(xf,   yf+1, zf+1), new Vector3f(xf,   yf+1, zf  ), new Vector3f(xf,   yf,   zf  ), FaceNormals.NX,
-                    uv00, uv01, uv11, uv10
-            );
-            case PY -> addQuadUV(
-                    new Vector3f(xf,   yf+1, zf  ), new Vector3f(xf,   yf+1, zf+1), new Vector3f(xf+1, yf+1, zf+1), new Vector3f(xf+1, yf+1, zf  ), FaceNormals.PY,
-                    uv00, uv01, uv11, uv10
-            );
-            case NY -> addQuadUV(
-                    new Vector3f(xf+1, yf,   zf  ), new Vector3f(xf+1, yf,   zf+1), new Vector3f(xf,   yf,   zf+1), new Vector3f(xf,   yf,   zf  ), FaceNormals.NY,
-                    uv00, uv01, uv11, uv10
-            );
-            case PZ -> addQuadUV(
-                    new Vector3f(xf,   yf,   zf+1), new Vector3f(xf+1, yf,   zf+1), new Vector3f(xf+1, yf+1, zf+1), new Vector3f(xf,   yf+1, zf+1), FaceNormals.PZ,
-                    uv00, uv01, uv11, uv10
-            );
-            case NZ -> addQuadUV(
-                    new Vector3f(xf+1, yf,   zf  ), new Vector3f(xf,   yf,   zf  ), new Vector3f(xf,   yf+1, zf  ), new Vector3f(xf+1, yf+1, zf  ), FaceNormals.NZ,
-                    uv00, uv01, uv11, uv10
-            );
+    // Adiciona uma face que cobre vários vóxeis (greedy meshing).
+    // (x,y,z) é o vóxel de menor coordenada do retângulo e (sx,sy,sz) a sua extensão em vóxeis
+    // (a extensão no eixo da normal é ignorada). As UVs vão de 0 até à extensão, por isso a
+    // textura tem de usar WrapMode.Repeat para se repetir uma vez por vóxel.
+    public void addGreedyFace(int x, int y, int z, int sx, int sy, int sz, Face face) {
+        // Mesma orientação de vértices e UVs que addVoxelFace, esticada pela extensão
+        switch (face.axis) {
+            case 0 -> sx = 1;
+            case 1 -> sy = 1;
+            default -> sz = 1;
         }
+        int[] uvAxes = FACE_UV_AXES[face.ordinal()];
+        putQuad(face, x, y, z, sx, sy, sz, UV_TABLE[0],
+                extent(uvAxes[0], sx, sy, sz), extent(uvAxes[1], sx, sy, sz));
+    }
+
+    private static int extent(int axis, int sx, int sy, int sz) {
+        return axis == 0 ? sx : axis == 1 ? sy : sz;
     }
 
     private static int hash3(int x, int y, int z) {
@@ -131,30 +178,79 @@ public class MeshBuilder {
         return h;
     }
 
-    // Constrói o mesh final a partir dos dados coletados
+    // Constrói o mesh final a partir dos dados coletados: um buffer direto de tamanho exato por atributo.
+    // O builder fica vazio (com os arrays já crescidos) e pode ser reutilizado.
     public Mesh build() {
         Mesh mesh = new Mesh();
-        float[] pos = toFloatArray(positions);
-        float[] nor = toFloatArray(normals);
-        float[] tc = toFloatArray(uvs);
-        int[] idx = indices.stream().mapToInt(Integer::intValue).toArray();
-        mesh.setBuffer(VertexBuffer.Type.Position, 3, pos);
-        mesh.setBuffer(VertexBuffer.Type.Normal, 3, nor);
-        mesh.setBuffer(VertexBuffer.Type.TexCoord, 2, tc);
-        mesh.setBuffer(VertexBuffer.Type.Index, 3, idx);
+        mesh.setBuffer(VertexBuffer.Type.Position, 3, directCopy(positions, vertexCount * 3));
+        mesh.setBuffer(VertexBuffer.Type.Normal, 3, directCopy(normals, vertexCount * 3));
+        mesh.setBuffer(VertexBuffer.Type.TexCoord, uvComponents, directCopy(uvs, vertexCount * uvComponents));
+        mesh.setBuffer(VertexBuffer.Type.Index, 3, directCopy(indices, indexCount));
         mesh.updateBound();
         mesh.updateCounts();
+
+        vertexCount = 0;
+        indexCount = 0;
         return mesh;
     }
 
-    // Converte uma lista de Float para um array de float primitivo
-    private static float[] toFloatArray(List<Float> list) {
-        float[] arr = new float[list.size()];
-        for (int i = 0; i < arr.length; i++) arr[i] = list.get(i);
-        return arr;
+    private static FloatBuffer directCopy(float[] data, int length) {
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(length);
+        buffer.put(data, 0, length).flip();
+        return buffer;
     }
 
-    public enum Face { PX, NX, PY, NY, PZ, NZ }
+    private static IntBuffer directCopy(int[] data, int length) {
+        IntBuffer buffer = BufferUtils.createIntBuffer(length);
+        buffer.put(data, 0, length).flip();
+        return buffer;
+    }
+
+    // Cantos (offsets 0/1 em x,y,z) dos 4 vértices de cada face, pela ordem de Face
+    private static final int[][] FACE_CORNERS = {
+            {1,0,0, 1,1,0, 1,1,1, 1,0,1}, // PX
+            {0,0,1, 0,1,1, 0,1,0, 0,0,0}, // NX
+            {0,1,0, 0,1,1, 1,1,1, 1,1,0}, // PY
+            {1,0,0, 1,0,1, 0,0,1, 0,0,0}, // NY
+            {0,0,1, 1,0,1, 1,1,1, 0,1,1}, // PZ
+            {1,0,0, 0,0,0, 0,1,0, 1,1,0}, // NZ
+    };
+
+    // Eixos do mundo (0=x, 1=y, 2=z) que correspondem a U e V em cada face
+    private static final int[][] FACE_UV_AXES = {
+            {2, 1}, {2, 1}, // PX, NX
+            {0, 2}, {0, 2}, // PY, NY
+            {1, 0}, {1, 0}, // PZ, NZ
+    };
+
+    // UVs dos 4 cantos (00, 01, 11, 10) para cada combinação rot | flipU<<2 | flipV<<3
+    private static final float[][] UV_TABLE = new float[16][];
+    static {
+        Vector2f[] base = { new Vector2f(0f, 0f), new Vector2f(0f, 1f), new Vector2f(1f, 1f), new Vector2f(1f, 0f) };
+        for (int h = 0; h < 16; h++) {
+            float[] uv = new float[8];
+            for (int k = 0; k < 4; k++) {
+                Vector2f t = transformUV(base[k], h & 3, ((h >>> 2) & 1) != 0, ((h >>> 3) & 1) != 0);
+                uv[k * 2] = t.x;
+                uv[k * 2 + 1] = t.y;
+            }
+            UV_TABLE[h] = uv;
+        }
+    }
+
+    // Cada face guarda o eixo da normal (0=x, 1=y, 2=z) e o deslocamento para o vizinho
+    public enum Face {
+        PX(0, 1, 0, 0), NX(0, -1, 0, 0),
+        PY(1, 0, 1, 0), NY(1, 0, -1, 0),
+        PZ(2, 0, 0, 1), NZ(2, 0, 0, -1);
+
+        public final int axis, dx, dy, dz;
+
+        Face(int axis, int dx, int dy, int dz) {
+            this.axis = axis;
+            this.dx = dx; this.dy = dy; this.dz = dz;
+        }
+    }
 
     // Normais das faces dos vóxeis
     public static class FaceNormals {
@@ -0,0 +1,102 @@
+package jogo.voxel;
+
+import Noise.OpenSimplexNoise.OpenSimplex2S;
+
+/**
+ * Benchmark do ruído por grelha (corre sem janela).
+ * Compara as chamadas escalares de OpenSimplex2S (uma por vóxel, como o gerador fazia) com as versões que
+ * enchem um float[] para a grelha inteira de um chunk, para as alturas (noise2, 16x16) e para as cavernas
+ * (noise3_Fallback, 16x16x16). Antes de medir confirma que os dois dão os mesmos valores (diferença máxima).
+ * Segue o esquema do JMH à mão: iterações de aquecimento, várias medições e o melhor tempo por amostra.
+ */
+public class NoiseSamplingBenchmark {
+    private static final long SEED = 12345L;
+    private static final int GRIDS = 2000;         // grelhas (chunks) por medição
+    private static final int WARMUP = 5, MEASURE = 10;
+    private static final double TOLERANCE = 1e-6;
+    private static final double SCALE = 0.04;       // a escala das cavernas
+
+    private static float sink; // impede o JIT de descartar os resultados
+
+    public static void main(String[] args) {
+        double[] xs = new double[Chunk.SIZE], ys = new double[Chunk.SIZE], zs = new double[Chunk.SIZE];
+        float[] out2 = new float[Chunk.SLAB], out3 = new float[Chunk.VOLUME];
+
+        // 1. Os mesmos valores que as funções escalares
+        double maxDiff2 = 0, maxDiff3 = 0;
+        for (int g = 0; g < 64; g++) {
+            fill(g, SCALE, xs, ys, zs);
+            OpenSimplex2S.noise2(SEED, xs, zs, out2);
+            OpenSimplex2S.noise3_Fallback(SEED, xs, ys, zs, out3);
+            for (int i = 0, n = 0; i < Chunk.SIZE; i++)
+                for (int k = 0; k < Chunk.SIZE; k++, n++)
+                    maxDiff2 = Math.max(maxDiff2, Math.abs(out2[n] - OpenSimplex2S.noise2(SEED, xs[i], zs[k])));
+            for (int i = 0, n = 0; i < Chunk.SIZE; i++)
+                for (int j = 0; j < Chunk.SIZE; j++)
+                    for (int k = 0; k < Chunk.SIZE; k++, n++)
+                        maxDiff3 = Math.max(maxDiff3, Math.abs(out3[n] - OpenSimplex2S.noise3_Fallback(SEED, xs[i], ys[j], zs[k])));
+        }
+        System.out.printf("Diferença máxima grelha/escalar: noise2 %.3g, noise3_Fallback %.3g (tolerância %.0e)%n", maxDiff2, maxDiff3, TOLERANCE);
+        if (maxDiff2 > TOLERANCE || maxDiff3 > TOLERANCE) {
+            System.out.println("ERRO: a grelha não coincide com as funções escalares");
+            System.exit(1);
+        }
+
+        // 2. Tempo por amostra
+        System.out.println("\nruído              | escalar ns/amostra | grelha ns/amostra");
+        double scalar2 = measure(() -> {
+            for (int g = 0; g < GRIDS; g++) {
+                fill(g, SCALE, xs, ys, zs);
+                for (int i = 0; i < Chunk.SIZE; i++)
+                    for (int k = 0; k < Chunk.SIZE; k++) sink += OpenSimplex2S.noise2(SEED, xs[i], zs[k]);
+            }
+        }, (long) GRIDS * Chunk.SLAB);
+        double bulk2 = measure(() -> {
+            for (int g = 0; g < GRIDS; g++) {
+                fill(g, SCALE, xs, ys, zs);
+                OpenSimplex2S.noise2(SEED, xs, zs, out2);
+                sink += out2[g & (Chunk.SLAB - 1)];
+            }
+        }, (long) GRIDS * Chunk.SLAB);
+        System.out.printf("noise2 16x16      | %18.1f | %17.1f%n", scalar2, bulk2);
+
+        double scalar3 = measure(() -> {
+            for (int g = 0; g < GRIDS / 16; g++) {
+                fill(g, SCALE, xs, ys, zs);
+                for (int i = 0; i < Chunk.SIZE; i++)
+                    for (int j = 0; j < Chunk.SIZE; j++)
+                        for (int k = 0; k < Chunk.SIZE; k++) sink += OpenSimplex2S.noise3_Fallback(SEED, xs[i], ys[j], zs[k]);
+            }
+        }, (long) GRIDS / 16 * Chunk.VOLUME);
+        double bulk3 = measure(() -> {
+            for (int g = 0; g < GRIDS / 16; g++) {
+                fill(g, SCALE, xs, ys, zs);
+                OpenSimplex2S.noise3_Fallback(SEED, xs, ys, zs, out3);
+                sink += out3[g & (Chunk.VOLUME - 1)];
+            }
+        }, (long) GRIDS / 16 * Chunk.VOLUME);
+        System.out.printf("noise3 16x16x16   | %18.1f | %17.1f%n", scalar3, bulk3);
+        if (sink == 42) System.out.println();
+    }
+
+    // Coordenadas do chunk g (uma fila de chunks em x), como o gerador as calcula
+    private static void fill(int g, double scale, double[] xs, double[] ys, double[] zs) {
+        for (int i = 0; i < Chunk.SIZE; i++) {
+            xs[i] = (g * Chunk.SIZE + i) * scale;
+            ys[i] = i * scale;
+            zs[i] = i * scale;
+        }
+    }
+
+    // Melhor tempo por amostra (ns) de MEASURE medições, depois de WARMUP iterações de aquecimento
+    private static double measure(Runnable body, long samples) {
+        for (int i = 0; i < WARMUP; i++) body.run();
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < MEASURE; i++) {
+            long t0 = System.nanoTime();
+            body.run();
+            best = Math.min(best, (System.nanoTime() - t0) / (double) samples);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,44 @@
+package jogo.voxel;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Vóxeis fora do heap (VoxelWorld.Storage.OFF_HEAP): slabs de ByteBuffer.allocateDirect com SLOTS_PER_SLAB
+ * chunks cada, um slot de Chunk.VOLUME bytes por chunk com células. Os slots libertados (chunk que ficou uniforme
+ * ou foi comprimido) são reutilizados antes de se criar uma slab nova.
+ * O GC só vê um objeto ByteBuffer por slab, por isso mundos enormes não pesam nas pausas.
+ * allocate e release são sincronizados porque a geração do terreno enche chunks em várias threads.
+ */
+public final class OffHeapChunkStore {
+    public static final int SLOTS_PER_SLAB = 256; // 1 MB por slab
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private int[] free = new int[64]; // pilha de slots livres
+    private int freeCount = 0;
+    private int nextSlot = 0;         // primeiro slot nunca usado
+    private int usedSlots = 0;
+
+    // Reserva um slot (conteúdo indefinido: o Chunk preenche-o)
+    synchronized int allocate() {
+        usedSlots++;
+        if (freeCount > 0) return free[--freeCount];
+        int slot = nextSlot++;
+        if (slot / SLOTS_PER_SLAB == slabs.size()) slabs.add(ByteBuffer.allocateDirect(SLOTS_PER_SLAB * Chunk.VOLUME));
+        return slot;
+    }
+
+    synchronized void release(int slot) {
+        usedSlots--;
+        if (freeCount == free.length) free = Arrays.copyOf(free, free.length * 2);
+        free[freeCount++] = slot;
+    }
+
+    synchronized ByteBuffer slab(int slot) { return slabs.get(slot / SLOTS_PER_SLAB); }
+    static int base(int slot) { return (slot % SLOTS_PER_SLAB) * Chunk.VOLUME; }
+
+    public synchronized int getUsedSlots() { return usedSlots; }
+    public synchronized long getCapacityBytes() { return (long) slabs.size() * SLOTS_PER_SLAB * Chunk.VOLUME; }
+}
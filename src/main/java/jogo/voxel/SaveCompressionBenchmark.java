@@ -0,0 +1,111 @@
+package jogo.voxel;
+
+import com.jme3.asset.DesktopAssetManager;
+import jogo.system.ChunkCodec;
+import jogo.system.GameSaveData;
+import jogo.system.RegionFile;
+import jogo.system.RegionStore;
+import jogo.system.SaveFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark da compressão dos chunks nas regiões (corre sem janela).
+ * Para cada nível de ChunkCodec mede o tamanho das regiões e o tempo de gravar e ler todos os chunks,
+ * numa só thread e no ForkJoinPool do ChunkCodec, para dois mundos típicos:
+ * o mundo gerado inteiro (saves sem base de gerador) e as diferenças de um mundo muito editado.
+ */
+public class SaveCompressionBenchmark {
+    private static final int[] LEVELS = { 0, 1, 3, 6, 9 };
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        VoxelWorld world = new VoxelWorld(new DesktopAssetManager(true), 256, 64, 256);
+        world.generateLayers(12345L);
+
+        GameSaveData full = new GameSaveData();
+        for (int i = 0; i < world.getChunkCount(); i++) {
+            Chunk c = world.chunkAt(i);
+            byte[] voxels = new byte[Chunk.VOLUME];
+            c.copyTo(voxels);
+            full.chunkVoxels.put(c.getChunkX() + "," + c.getChunkY() + "," + c.getChunkZ(), voxels);
+        }
+
+        Random random = new Random(1);
+        for (int i = 0; i < 200000; i++) world.breakAt(random.nextInt(256), random.nextInt(48), random.nextInt(256));
+        GameSaveData edited = new GameSaveData();
+        world.snapshotForSave().writeTo(edited);
+
+        Path dir = Files.createTempDirectory("regions");
+        System.out.println("Threads do pool: " + Runtime.getRuntime().availableProcessors());
+        run("Mundo gerado inteiro", full, dir);
+        run("Diferenças de um mundo editado", edited, dir);
+        deleteTree(dir);
+        ChunkCodec.setLevel(ChunkCodec.DEFAULT_LEVEL);
+        world.shutdown();
+    }
+
+    private static void run(String name, GameSaveData data, Path dir) throws IOException {
+        long raw = (long) data.chunkVoxels.size() * Chunk.VOLUME + data.chunkEdits.size() * 2L;
+        for (int[] edits : data.chunkEdits.values()) raw += edits.length * 3L;
+        System.out.printf("%n%s: %d chunks inteiros, %d listas de edições (%.0f KB sem codificação)%n",
+                name, data.chunkVoxels.size(), data.chunkEdits.size(), raw / 1024.0);
+        System.out.println("nível |   tamanho | grava 1t | grava pool | lê 1t | lê pool | grava MB/s (pool)");
+
+        for (int level : LEVELS) {
+            ChunkCodec.setLevel(level);
+            long size = 0;
+            double saveSerial = Double.MAX_VALUE, savePool = Double.MAX_VALUE;
+            double loadSerial = Double.MAX_VALUE, loadPool = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                // Numa só thread: só a codificação, sem escrever
+                long t0 = System.nanoTime();
+                for (Map.Entry<String, byte[]> e : data.chunkVoxels.entrySet()) RegionFile.payload(RegionFile.FULL, SaveFormat.encodeChunk(e.getValue()));
+                for (Map.Entry<String, int[]> e : data.chunkEdits.entrySet()) RegionFile.payload(RegionFile.EDITS, SaveFormat.encodeEdits(e.getValue()));
+                saveSerial = Math.min(saveSerial, (System.nanoTime() - t0) / 1e6);
+
+                // RegionStore.write esvazia os mapas: grava uma cópia
+                GameSaveData copy = new GameSaveData();
+                copy.chunkVoxels.putAll(data.chunkVoxels);
+                copy.chunkEdits.putAll(data.chunkEdits);
+                t0 = System.nanoTime();
+                RegionStore.write(dir, copy);
+                savePool = Math.min(savePool, (System.nanoTime() - t0) / 1e6);
+                size = directorySize(RegionStore.generationDir(dir, copy.regionGeneration));
+
+                RegionStore store = RegionStore.open(dir, copy.regionGeneration);
+                List<int[]> coords = new ArrayList<>();
+                for (String key : store.chunkKeys()) coords.add(VoxelWorld.parseChunkKey(key));
+                t0 = System.nanoTime();
+                GameSaveData serial = new GameSaveData();
+                for (int[] c : coords) store.read(c[0], c[1], c[2], serial);
+                loadSerial = Math.min(loadSerial, (System.nanoTime() - t0) / 1e6);
+                t0 = System.nanoTime();
+                store.readAll(coords, new GameSaveData());
+                loadPool = Math.min(loadPool, (System.nanoTime() - t0) / 1e6);
+                RegionStore.deleteOtherGenerations(dir, copy.regionGeneration);
+            }
+            System.out.printf("  %d   | %6.0f KB | %5.1f ms | %7.1f ms | %3.1f ms | %4.1f ms | %6.0f%n",
+                    level, size / 1024.0, saveSerial, savePool, loadSerial, loadPool, raw / 1048576.0 / (savePool / 1000));
+        }
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        try (var files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (var files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+}
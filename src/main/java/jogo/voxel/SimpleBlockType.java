@@ -44,6 +44,9 @@ public class SimpleBlockType extends VoxelBlockType {
     @Override
     public int getContactDamage() { return damage; }
 
+    @Override
+    public String getLayerTexture() { return texturePath; }
+
     @Override
     public Material getMaterial(AssetManager assetManager) {
         Texture2D tex = (Texture2D) assetManager.loadTexture(texturePath);
@@ -0,0 +1,140 @@
+package jogo.voxel;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark do mundo sem limites (corre sem janela).
+ * 1. Verificação: muda blocos em coordenadas negativas, afasta o jogador até as colunas serem descarregadas,
+ *    volta e confirma que os blocos mudados foram repostos.
+ * 2. Caminhada: o jogador anda em linha reta à velocidade de caminhar durante N minutos simulados (60 por
+ *    defeito, primeiro argumento), com updateStreaming e rebuildDirtyChunks a cada frame de 1/60 s e um bloco
+ *    partido a cada 10 s. Por minuto mostra as colunas e chunks carregados, os corpos na física, os chunks
+ *    guardados (e o tamanho do ficheiro onde estão) e o heap usado depois de um GC; no fim compara o heap do fim
+ *    com o do primeiro minuto.
+ * Segundo argumento opcional: HEAP ou OFF_HEAP (por defeito HEAP).
+ */
+public class StreamingBenchmark {
+    private static final float TPF = 1f / 60f;
+    private static final float WALK_SPEED = 4.3f; // blocos por segundo
+    private static final int SIZE_Y = 64;
+    private static final long SEED = 12345L;
+
+    public static void main(String[] args) {
+        Logger.getLogger("").setLevel(Level.WARNING); // sem os logs INFO de cada corpo criado
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+        int minutes = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        VoxelWorld.Storage storage = args.length > 1 ? VoxelWorld.Storage.valueOf(args[1]) : VoxelWorld.Storage.HEAP;
+
+        if (!verifyEvictedEdits(storage)) {
+            System.out.println("ERRO: os blocos mudados não voltaram depois de a coluna ser descarregada");
+            System.exit(1);
+        }
+        walk(minutes, storage);
+    }
+
+    private static boolean verifyEvictedEdits(VoxelWorld.Storage storage) {
+        VoxelWorld world = VoxelWorld.unbounded(new DesktopAssetManager(true), SIZE_Y, storage);
+        world.generateLazily(SEED);
+        Vector3f pos = new Vector3f(-40.5f, 30f, -70.5f);
+        settle(world, pos);
+
+        int[][] cells = { { -40, -70 }, { -33, -65 }, { -48, -80 } };
+        for (int i = 0; i < cells.length; i++) {
+            int x = cells[i][0], z = cells[i][1], y = world.getTopSolidY(x, z);
+            world.setBlock(x, y, z, VoxelPalette.AIR_ID);
+            world.setBlock(x, y + 1, z, VoxelPalette.STONE_ID);
+        }
+        int loadedBefore = world.getLoadedColumnCount();
+
+        pos.x += (world.getUnloadRadius() + world.getViewRadius() + 2) * Chunk.SIZE;
+        settle(world, pos);
+        int stored = world.getStoredChunkCount();
+        boolean evicted = world.getLoadedColumnCount() == loadedBefore && stored > 0;
+
+        pos.x = -40.5f;
+        settle(world, pos);
+        boolean restored = true;
+        for (int i = 0; i < cells.length; i++) {
+            int x = cells[i][0], z = cells[i][1], y = world.getTopSolidY(x, z);
+            restored &= world.getBlock(x, y, z) == VoxelPalette.STONE_ID && world.getBlock(x, y - 1, z) == VoxelPalette.AIR_ID;
+        }
+        System.out.printf("Verificação: %d colunas carregadas, %d chunks guardados ao afastar, %d depois de voltar, blocos %s%n",
+                loadedBefore, stored, world.getStoredChunkCount(), restored ? "repostos" : "PERDIDOS");
+        world.shutdown();
+        return evicted && restored;
+    }
+
+    // Chama updateStreaming até não haver nada a carregar nem a descarregar à volta de pos
+    private static void settle(VoxelWorld world, Vector3f pos) {
+        while (world.updateStreaming(pos) > 0) {
+            // limite por frame: continua no frame seguinte
+        }
+    }
+
+    private static void walk(int minutes, VoxelWorld.Storage storage) {
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        VoxelWorld world = VoxelWorld.unbounded(new DesktopAssetManager(true), SIZE_Y, storage);
+        world.generateLazily(SEED);
+        Vector3f pos = new Vector3f(0.5f, 30f, 0.5f);
+        settle(world, pos);
+        world.buildMeshes();
+        world.clearAllDirtyFlags();
+        world.buildPhysics(space);
+
+        System.out.printf("%nCaminhada de %d min a %.1f blocos/s (%s, raios %d/%d chunks)%n", minutes, WALK_SPEED, storage,
+                world.getViewRadius(), world.getUnloadRadius());
+        System.out.println("min | distância | colunas | chunks | corpos | guardados | disco KB | heap MB | fora do heap MB | streaming ms/frame (máx)");
+        int framesPerMinute = Math.round(60f / TPF);
+        int breakEvery = Math.round(10f / TPF);
+        long firstHeap = 0, lastHeap = 0;
+        int maxColumns = 0;
+        long frame = 0;
+        for (int minute = 1; minute <= minutes; minute++) {
+            long streamNanos = 0, maxStreamNanos = 0;
+            for (int f = 0; f < framesPerMinute; f++, frame++) {
+                pos.x += WALK_SPEED * TPF;
+                long t0 = System.nanoTime();
+                world.updateStreaming(pos);
+                long dt = System.nanoTime() - t0;
+                streamNanos += dt;
+                maxStreamNanos = Math.max(maxStreamNanos, dt);
+                world.rebuildDirtyChunks(space, pos, pos);
+                world.updateColdChunks(TPF);
+                if (frame % breakEvery == 0) {
+                    int x = (int) Math.floor(pos.x), z = (int) Math.floor(pos.z);
+                    world.breakAt(x, world.getTopSolidY(x, z), z);
+                }
+                maxColumns = Math.max(maxColumns, world.getLoadedColumnCount());
+            }
+            long heap = usedHeap();
+            if (minute == 1) firstHeap = heap;
+            lastHeap = heap;
+            OffHeapChunkStore offHeap = world.getOffHeapStore();
+            System.out.printf("%3d | %9.0f | %7d | %6d | %6d | %9d | %8.1f | %7.1f | %15.1f | %.3f (%.1f)%n", minute, pos.x,
+                    world.getLoadedColumnCount(), world.getChunkCount(), space.getRigidBodyList().size(),
+                    world.getStoredChunkCount(), world.getEvictedChunkBytes() / 1024.0, heap / 1048576.0,
+                    offHeap == null ? 0 : offHeap.getCapacityBytes() / 1048576.0,
+                    streamNanos / 1e6 / framesPerMinute, maxStreamNanos / 1e6);
+        }
+        int r = world.getUnloadRadius(), circle = 0;
+        for (int dx = -r; dx <= r; dx++)
+            for (int dz = -r; dz <= r; dz++) if (dx * dx + dz * dz <= r * r) circle++;
+        System.out.printf("%nColunas carregadas no máximo: %d (no círculo de raio %d cabem %d)%n", maxColumns, r, circle);
+        System.out.printf("Heap: %.1f MB no minuto 1, %.1f MB no fim (%+.1f MB)%n", firstHeap / 1048576.0, lastHeap / 1048576.0,
+                (lastHeap - firstHeap) / 1048576.0);
+        world.shutdown();
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,110 @@
+package jogo.voxel;
+
+import com.jme3.asset.DesktopAssetManager;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark e teste de determinismo da geração do terreno (corre sem janela).
+ * Para várias seeds gera o mundo numa só thread (a referência) e com vários números de threads, nos dois
+ * armazenamentos, e compara os chunks célula a célula: qualquer diferença termina com código de saída 1.
+ * Faz o mesmo com o mundo gerado a pedido (generateLazily), com as colunas pedidas por uma ordem aleatória.
+ * Também mede o tempo de generateLayers (relevo e decorações em paralelo) e o de uma coluna gerada a pedido.
+ */
+public class TerrainGenerationBenchmark {
+    private static final long[] SEEDS = { 12345L, 3L, -77L, Long.MIN_VALUE };
+    private static final int[] THREADS = { 2, 4, 8, Runtime.getRuntime().availableProcessors() };
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        Logger.getLogger("").setLevel(Level.SEVERE); // sem os avisos dos loaders do AssetManager
+        System.out.println("Processadores: " + Runtime.getRuntime().availableProcessors());
+        boolean identical = true;
+
+        for (long seed : SEEDS) {
+            byte[][] reference = generate(seed, 1, VoxelWorld.Storage.HEAP);
+            for (VoxelWorld.Storage storage : VoxelWorld.Storage.values()) {
+                for (int threads : THREADS) {
+                    int diffs = diffChunks(reference, generate(seed, threads, storage));
+                    if (diffs > 0) identical = false;
+                    System.out.printf("seed %d, %s, %d threads: %s%n", seed, storage, threads,
+                            diffs == 0 ? "idêntico" : diffs + " chunks diferentes");
+                }
+            }
+            int diffs = diffChunks(reference, generateLazily(seed, new Random(seed)));
+            if (diffs > 0) identical = false;
+            System.out.printf("seed %d, a pedido, ordem aleatória: %s%n", seed, diffs == 0 ? "idêntico" : diffs + " chunks diferentes");
+        }
+
+        System.out.println();
+        System.out.println("threads | generateLayers (melhor de " + RUNS + ")");
+        for (int threads : new int[] { 1, 2, 4, 8 }) {
+            double best = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                VoxelWorld world = new VoxelWorld(new DesktopAssetManager(true), 256, 64, 256);
+                world.setGenerationThreads(threads);
+                long t0 = System.nanoTime();
+                world.generateLayers(SEEDS[0]);
+                best = Math.min(best, (System.nanoTime() - t0) / 1e6);
+                world.shutdown();
+            }
+            System.out.printf("  %5d | %.1f ms%n", threads, best);
+        }
+
+        // Uma coluna a pedido no meio do mapa: relevo e decorações das 3x3 colunas à volta
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            VoxelWorld world = new VoxelWorld(new DesktopAssetManager(true), 256, 64, 256);
+            world.generateLazily(SEEDS[0]);
+            long t0 = System.nanoTime();
+            world.getBlock(128, 0, 128);
+            best = Math.min(best, (System.nanoTime() - t0) / 1e6);
+            world.shutdown();
+        }
+        System.out.printf("%nprimeira coluna a pedido: %.2f ms (melhor de %d)%n", best, RUNS);
+
+        if (!identical) {
+            System.out.println("ERRO: a geração depende do número de threads ou da ordem das colunas");
+            System.exit(1);
+        }
+    }
+
+    // Gera o mundo e devolve o conteúdo de cada chunk (por chunkIndex)
+    private static byte[][] generate(long seed, int threads, VoxelWorld.Storage storage) {
+        VoxelWorld world = new VoxelWorld(new DesktopAssetManager(true), 256, 64, 256, storage);
+        world.setGenerationThreads(threads);
+        world.generateLayers(seed);
+        byte[][] cells = new byte[world.getChunkCount()][Chunk.VOLUME];
+        for (int i = 0; i < cells.length; i++) world.chunkAt(i).copyTo(cells[i]);
+        world.shutdown();
+        return cells;
+    }
+
+    // Gera o mundo a pedido, pedindo um bloco de cada coluna por uma ordem aleatória
+    private static byte[][] generateLazily(long seed, Random order) {
+        VoxelWorld world = new VoxelWorld(new DesktopAssetManager(true), 256, 64, 256);
+        world.generateLazily(seed);
+        int columnsX = 256 / Chunk.SIZE, columnsZ = 256 / Chunk.SIZE;
+        int[] columns = new int[columnsX * columnsZ];
+        for (int i = 0; i < columns.length; i++) columns[i] = i;
+        for (int i = columns.length - 1; i > 0; i--) {
+            int j = order.nextInt(i + 1), t = columns[i];
+            columns[i] = columns[j];
+            columns[j] = t;
+        }
+        for (int col : columns) world.getBlock(col / columnsZ * Chunk.SIZE, 0, col % columnsZ * Chunk.SIZE);
+        byte[][] cells = new byte[world.getChunkCount()][Chunk.VOLUME];
+        for (int i = 0; i < cells.length; i++) world.chunkAt(i).copyTo(cells[i]);
+        world.shutdown();
+        return cells;
+    }
+
+    private static int diffChunks(byte[][] a, byte[][] b) {
+        int diffs = 0;
+        for (int i = 0; i < a.length; i++) if (!Arrays.equals(a[i], b[i])) diffs++;
+        return diffs;
+    }
+}
@@ -23,8 +23,16 @@ public abstract class VoxelBlockType {
     public byte getDropItem() { return 0; }
     public int getContactDamage() { return 0; }
 
+    // Se true, faces coplanares deste tipo são fundidas em retângulos (greedy meshing).
+    // A textura passa a repetir-se por vóxel, perdendo a rotação aleatória de UVs.
+    public boolean isGreedyMeshed() { return false; }
+
     public abstract Material getMaterial(AssetManager assetManager);
 
+    // Textura deste tipo como camada do texture array partilhado pelos chunks (ver VoxelPalette.getLayer).
+    // null = o tipo tem um material próprio (brilho, cor, transparência) e fica com a sua geometria.
+    public String getLayerTexture() { return null; }
+
     public Material getMaterial(AssetManager assetManager, jogo.framework.math.Vec3 blockPos) {
         return getMaterial(assetManager);
     }
@@ -47,8 +55,7 @@ public abstract class VoxelBlockType {
         // 1. Remove o bloco do mundo
         world.getVoxelWorld().breakAt(pos.x, pos.y, pos.z);
 
-        // 2. Atualiza a malha
-        world.getVoxelWorld().rebuildDirtyChunks(world.getPhysicsSpace());
+        // 2. A malha é reconstruída pelo VoxelWorld nos próximos frames (o chunk ficou na fila de sujos)
 
         // 3. Atualiza a física do jogador (se estiver em cima do bloco)
         if (player != null) {
@@ -4,20 +4,40 @@ package jogo.voxel;
 import jogo.voxel.blocks.*;
 import jogo.voxel.items.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 // Gerencia o registro e mapeamento de tipos de blocos voxel
 public class VoxelPalette {
     private final List<VoxelBlockType> types = new ArrayList<>();
 
+    // Camada do texture array de cada id (-1 = sem camada) e a textura de cada camada, por ordem
+    private final int[] layers = new int[256];
+    private final List<String> layerTextures = new ArrayList<>();
+
+    public VoxelPalette() {
+        Arrays.fill(layers, -1);
+    }
+
     // Registra um novo tipo de bloco voxel e retorna seu ID
     public byte register(VoxelBlockType type) {
         types.add(type);
         int id = types.size() - 1;
         if (id > 255) throw new IllegalStateException("Too many voxel block types (>255)");
+        // Só os blocos sólidos e opacos vão para a malha única do chunk; os restantes ficam com geometria própria
+        if (type.isSolid() && !type.isTransparent() && type.getLayerTexture() != null) {
+            layers[id] = layerTextures.size();
+            layerTextures.add(type.getLayerTexture());
+        }
         return (byte) id;
     }
 
+    // Camada do texture array do bloco, ou -1 se o tipo usa o seu próprio material
+    public int getLayer(byte id) { return layers[Byte.toUnsignedInt(id)]; }
+
+    public List<String> getLayerTextures() { return Collections.unmodifiableList(layerTextures); }
+
     public VoxelBlockType get(byte id) {
         int idx = Byte.toUnsignedInt(id);
         if (idx < 0 || idx >= types.size()) return new AirBlockType();
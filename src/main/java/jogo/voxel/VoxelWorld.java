@@ -3,22 +3,30 @@ package jogo.voxel;
 import Noise.OpenSimplexNoise;
 import com.jme3.asset.AssetManager;
 import com.jme3.bullet.PhysicsSpace;
-import com.jme3.material.Material;
-import com.jme3.material.RenderState;
-import com.jme3.math.ColorRGBA;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
-import com.jme3.texture.Texture2D;
+import jogo.system.EvictedChunkFile;
 import jogo.system.GameSaveData;
+import jogo.system.RegionStore;
 import jogo.util.Hit;
-import jogo.util.ProcTextures;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Gere a grelha de vóxeis, a geração do terreno e a gestão dos Chunks.
@@ -30,7 +38,7 @@ public class VoxelWorld {
 
     private final Node node = new Node("VoxelWorld");
     private final Map<Byte, Geometry> geoms = new HashMap<>();
-    private final Map<Byte, Material> materials = new HashMap<>();
+    private final MaterialRegistry materials;
 
     // Render Flags
     private boolean lit = true;
@@ -40,11 +48,133 @@ public class VoxelWorld {
 
     // Dados dos Chunks
     private final int chunkSize = Chunk.SIZE;
-    private final int chunkCountX, chunkCountY, chunkCountZ;
-    private final Chunk[][][] chunks;
+    private final int chunkCountX, chunkCountY, chunkCountZ; // chunkCountX e chunkCountZ são 0 sem limites
+    private final Chunk[][][] chunks;                        // null sem limites
+
+    // Mundo sem limites em x e z (ver unbounded): os chunks carregados ficam em loadedChunks e cada um ocupa um
+    // índice (chunkIndex) que é reaproveitado quando é descarregado, para as estruturas por índice (chunks sujos,
+    // pristine, savedModCount, chunks frios) continuarem a servir sem crescer com a distância percorrida
+    private final boolean unbounded;
+    private final ChunkMap loadedChunks;
+    private Chunk[] chunksByIndex;
+    private int[] freeIndices = new int[64];
+    private int freeIndexCount = 0;
+    private int nextIndex = 0;
+    // Raios em chunks (distância horizontal ao jogador): as colunas a menos de viewRadius são carregadas e as que
+    // ficam a mais de unloadRadius descarregadas; a diferença evita carregar e descarregar na mesma fronteira
+    private int viewRadius = 8;
+    private int unloadRadius = 10;
+    private int maxLoadsPerFrame = 2;
+    private int maxUnloadsPerFrame = 4;
+    // Coluna do jogador na última passagem de updateStreaming; settled: nessa passagem não ficou nada por fazer
+    private int streamCenterX, streamCenterZ;
+    private boolean streamSettled = false;
+    // Decorações das colunas sem limites (chave ChunkMap.key(cx, 0, cz)); as longe do jogador são esquecidas
+    private final Map<Long, int[]> decorationCache = new HashMap<>();
+    // Chunks descarregados com alterações, por "cx,cy,cz" como num save; voltam para o chunk quando a coluna é
+    // carregada outra vez. Os descarregados durante o jogo ficam em evictedChunks (no disco, em memória só o índice)
+    // e os de um save carregado nas regiões dele (savedRegions, chaves em savedRegionKeys) até serem precisos.
+    // unsavedStored: os que mudaram desde o último save (estão todos em evictedChunks)
+    private final EvictedChunkFile evictedChunks = new EvictedChunkFile();
+    private RegionStore savedRegions;
+    private final Set<String> savedRegionKeys = new HashSet<>();
+    private final Set<String> unsavedStored = new HashSet<>();
+    // O PhysicsSpace de buildPhysics / rebuildDirtyChunks, de onde saem os chunks descarregados
+    private PhysicsSpace physicsSpace;
+
+    // Buffers reutilizados pela construção das malhas (só usados na thread de update)
+    private final byte[] paddedScratch = new byte[Chunk.PADDED_VOLUME];
+    private final byte[] slabScratch = new byte[Chunk.SLAB];
+
+    // Reconstrução das malhas em background (deixa sempre um core livre para a thread de render)
+    private static final int MESHER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private final ChunkMesher mesher;
+
+    // Fila de chunks sujos (índice de chunkIndex) e tempo máximo de reconstrução por frame
+    private final BitSet dirtyChunks = new BitSet();
+    private float rebuildBudgetMs = 4f;
+
+    // Modo texture array: os blocos opacos de cada chunk são desenhados numa só Geometry
+    private boolean textureArrayMode = false;
+
+    // Versão do gerador: incrementar sempre que generateLayers passar a produzir blocos diferentes para a
+    // mesma seed, senão os saves antigos aplicavam as edições sobre o terreno errado.
+    // 1 = decoradores com um Random para o mapa inteiro (só para regenerar saves antigos); 2 = decorações por coluna
+    public static final int GENERATOR_VERSION = 2;
+
+    // --- CONFIGURAÇÕES DE GERAÇÃO ---
+    private static final int GROUND_BASE = 20;
+    private static final float NOISE_SCALE = 0.03f;
+    private static final int AMPLITUDE = 6;
+    private static final int MAP_LIMIT = 60;
+    private static final int SAND_WIDTH = 8;
+    private static final int WATER_WIDTH = 11;
+    private static final int WATER_LEVEL = 16;
+    private static final double CAVE_THRESHOLD = 0.60;
+    private static final double CAVE_SCALE = 0.04;
+    private static final int CAVE_TOP = 20; // cavernas só abaixo desta altura
+    // Passo da grelha onde o ruído das cavernas é calculado; entre os pontos é interpolado (1 = exato em cada vóxel).
+    // A interpolação achata os picos do ruído e as cavernas encolhem com o passo (ver CaveInterpolationReport)
+    public static final int DEFAULT_CAVE_STEP = 2;
+    private int caveStep = DEFAULT_CAVE_STEP;
+
+    // Threads da geração do relevo (1 = na thread que chama generateLayers)
+    private int generationThreads = Runtime.getRuntime().availableProcessors();
+
+    private long seed;
+    // Conteúdo gerado dos chunks já editados (por chunkIndex, null = igual ao gerador), para o save guardar só diferenças.
+    // Sem base de gerador (mundo vindo de um save antigo) o save volta a guardar os chunks todos.
+    private byte[][] pristine;
+    private boolean trackEdits = false;
+    // Chunk.getModCount() de cada chunk no último save (por chunkIndex)
+    private int[] savedModCount;
+
+    // Chunks de um save ainda por ler das regiões (por chunkIndex) e as regiões de onde vêm
+    private final BitSet pendingLoads = new BitSet();
+    private RegionStore pendingRegions;
+    private boolean hasGeneratorBase = false;
+    private int generatorVersion = GENERATOR_VERSION;
+
+    // Colunas de chunks (cx * chunkCountZ + cz) ainda por gerar (generateLazily) e as decorações já calculadas
+    // de cada coluna (pelo mesmo índice, null = ainda não), que as colunas vizinhas também usam
+    private final BitSet pendingColumns = new BitSet();
+    private int[][] decorations;
+
+    // Avisado de cada bloco mudado por setBlock (o EditJournal do jogo)
+    public interface BlockEditListener {
+        void blockChanged(int x, int y, int z, byte id);
+    }
+    private BlockEditListener editListener;
+
+    // Compressão em memória dos chunks que não são usados há algum tempo
+    private final ColdChunkCache coldChunks;
+
+    // Onde ficam as células dos chunks: arrays no heap ou slots de slabs diretas (OffHeapChunkStore)
+    public enum Storage { HEAP, OFF_HEAP }
+    private final OffHeapChunkStore offHeap; // null em HEAP
 
     public VoxelWorld(AssetManager assetManager, int sizeX, int sizeY, int sizeZ) {
+        this(assetManager, sizeX, sizeY, sizeZ, Storage.HEAP);
+    }
+
+    public VoxelWorld(AssetManager assetManager, int sizeX, int sizeY, int sizeZ, Storage storage) {
+        this(assetManager, sizeX, sizeY, sizeZ, storage, false);
+    }
+
+    /**
+     * Mundo sem limites em x e z, com sizeY de altura. Nenhum chunk existe à partida: as colunas de chunks à volta
+     * do jogador são geradas (ou repostas, se tiverem sido alteradas) por updateStreaming e descarregadas quando
+     * ficam longe, por isso a memória não cresce com a distância percorrida. O terreno é o do gerador sem a ilha.
+     * Também gera já uma coluna que seja pedida fora do raio (getBlock, setBlock, ...).
+     */
+    public static VoxelWorld unbounded(AssetManager assetManager, int sizeY, Storage storage) {
+        return new VoxelWorld(assetManager, 0, sizeY, 0, storage, true);
+    }
+
+    private VoxelWorld(AssetManager assetManager, int sizeX, int sizeY, int sizeZ, Storage storage, boolean unbounded) {
         this.assetManager = assetManager;
+        this.unbounded = unbounded;
+        this.offHeap = storage == Storage.OFF_HEAP ? new OffHeapChunkStore() : null;
         this.sizeX = sizeX;
         this.sizeY = sizeY;
         this.sizeZ = sizeZ;
@@ -55,103 +185,464 @@ public class VoxelWorld {
         this.chunkCountY = (int)Math.ceil(sizeY / (float)chunkSize);
         this.chunkCountZ = (int)Math.ceil(sizeZ / (float)chunkSize);
 
-        this.chunks = new Chunk[chunkCountX][chunkCountY][chunkCountZ];
-        for (int cx = 0; cx < chunkCountX; cx++)
-            for (int cy = 0; cy < chunkCountY; cy++)
-                for (int cz = 0; cz < chunkCountZ; cz++)
-                    chunks[cx][cy][cz] = new Chunk(cx, cy, cz);
+        int indices;
+        if (unbounded) {
+            if (chunkCountY >= 255) throw new IllegalArgumentException("Mundo sem limites demasiado alto: " + sizeY);
+            this.chunks = null;
+            int columns = (2 * unloadRadius + 1) * (2 * unloadRadius + 1);
+            this.loadedChunks = new ChunkMap(columns * chunkCountY);
+            indices = columns * chunkCountY;
+            this.chunksByIndex = new Chunk[indices];
+        } else {
+            this.chunks = new Chunk[chunkCountX][chunkCountY][chunkCountZ];
+            for (int cx = 0; cx < chunkCountX; cx++)
+                for (int cy = 0; cy < chunkCountY; cy++)
+                    for (int cz = 0; cz < chunkCountZ; cz++)
+                        chunks[cx][cy][cz] = new Chunk(cx, cy, cz, offHeap);
+            this.loadedChunks = null;
+            indices = chunkCountX * chunkCountY * chunkCountZ;
+        }
+        this.pristine = new byte[indices][];
+        this.savedModCount = new int[indices];
+        this.coldChunks = new ColdChunkCache(indices);
 
-        initMaterials();
+        this.mesher = new ChunkMesher(palette, MESHER_THREADS);
+        this.materials = new MaterialRegistry(assetManager, palette);
     }
 
     /**
-     * Guarda o estado atual dos chunks modificados para o objeto de save.
+     * Guarda os chunks modificados para o objeto de save: a seed e a versão do gerador, e só os chunks que
+     * diferem do que o gerador produz (lista de edições se forem poucas células, senão o chunk inteiro).
      */
     public void saveChunksToData(GameSaveData data) {
-        for (int cx = 0; cx < chunkCountX; cx++) {
-            for (int cy = 0; cy < chunkCountY; cy++) {
-                for (int cz = 0; cz < chunkCountZ; cz++) {
-                    Chunk c = chunks[cx][cy][cz];
+        snapshotForSave().writeTo(data);
+    }
 
-                    // Otimização: Verificar se o chunk tem algo antes de alocar memória massiva
-                    byte[][][] chunkData = new byte[Chunk.SIZE][Chunk.SIZE][Chunk.SIZE];
-                    boolean hasBlocks = false;
+    /**
+     * Snapshot dos chunks de um save completo (O(1) por chunk, ver Chunk.snapshot); as diferenças são
+     * calculadas por WorldSnapshot.writeTo fora da thread de update. Sem base de gerador vão todos os chunks com blocos.
+     */
+    public WorldSnapshot snapshotForSave() {
+        loadAllPendingChunks();
+        WorldSnapshot snapshot = new WorldSnapshot(seed, hasGeneratorBase ? generatorVersion : 0, caveStep, false);
+        for (int i = 0; i < pristine.length; i++) {
+            Chunk c = chunkAt(i);
+            if (c == null) continue;
+            if (hasGeneratorBase && pristine[i] != null) snapshot.add(c.snapshot(), pristine[i]);
+            else if (!hasGeneratorBase && !c.isEmpty()) snapshot.add(c.snapshot(), null); // o contador de ocupação evita chunks só de ar
+        }
+        if (unbounded) addStoredChunks(snapshot, null);
+        markAllSaved();
+        return snapshot;
+    }
 
-                    for(int x=0; x<Chunk.SIZE; x++){
-                        for(int y=0; y<Chunk.SIZE; y++){
-                            for(int z=0; z<Chunk.SIZE; z++){
-                                byte b = c.get(x,y,z);
-                                chunkData[x][y][z] = b;
-                                if(b != VoxelPalette.AIR_ID) hasBlocks = true;
-                            }
-                        }
-                    }
+    /**
+     * Autosave: snapshot só dos chunks alterados desde o último save, até cerca de byteBudget bytes de dados
+     * (pelo menos um chunk). Os que ficarem de fora contam em WorldSnapshot.getPendingChunks.
+     */
+    public WorldSnapshot snapshotChangedForSave(int byteBudget) {
+        WorldSnapshot snapshot = new WorldSnapshot(seed, hasGeneratorBase ? generatorVersion : 0, caveStep, true);
+        int bytes = 0;
+        int pending = 0;
+        for (int i = 0; i < savedModCount.length; i++) {
+            Chunk c = chunkAt(i);
+            if (c == null) continue;
+            int edits = c.getModCount() - savedModCount[i];
+            if (edits == 0) continue;
+            if (bytes >= byteBudget) {
+                pending++;
+                continue;
+            }
+            if (!hasGeneratorBase) {
+                snapshot.add(c.snapshot(), null);
+                bytes += Chunk.VOLUME;
+            } else if (pristine[i] != null) {
+                snapshot.add(c.snapshot(), pristine[i]);
+                bytes += 2 + Math.min(Chunk.VOLUME, edits * 3); // estimativa: no máximo uma célula por escrita
+            }
+            savedModCount[i] = c.getModCount();
+        }
+        if (unbounded) addStoredChunks(snapshot, unsavedStored); // pequenos: não contam para o orçamento
+        snapshot.setPendingChunks(pending);
+        return snapshot;
+    }
 
-                    if (hasBlocks) {
-                        String key = cx + "," + cy + "," + cz;
-                        data.modifiedChunks.put(key, chunkData);
-                    }
-                }
+    /**
+     * Os chunks guardados das colunas descarregadas vão para o save tal como estão (only: só estas chaves, null = todos).
+     * Num save completo as regiões do save carregado vão ser substituídas: o que ainda lá estava passa para evictedChunks.
+     */
+    private void addStoredChunks(WorldSnapshot snapshot, Set<String> only) {
+        GameSaveData stored = new GameSaveData();
+        for (String key : only == null ? evictedChunks.keys() : only) {
+            try {
+                evictedChunks.read(key, stored);
+            } catch (IOException e) {
+                System.out.println("Erro ao ler o chunk descarregado " + key + ": " + e.getMessage());
             }
         }
+        if (only == null && savedRegions != null) {
+            GameSaveData fromRegions = new GameSaveData();
+            List<int[]> coords = new ArrayList<>();
+            for (String key : savedRegionKeys) coords.add(parseChunkKey(key));
+            savedRegions.readAll(coords, fromRegions);
+            savedRegionKeys.removeIf(key -> storeEvicted(key, fromRegions));
+            if (savedRegionKeys.isEmpty()) savedRegions = null; // liberta os mapeamentos
+            stored.chunkVoxels.putAll(fromRegions.chunkVoxels);
+            stored.chunkEdits.putAll(fromRegions.chunkEdits);
+        }
+        for (Map.Entry<String, byte[]> entry : stored.chunkVoxels.entrySet()) snapshot.addStored(entry.getKey(), entry.getValue(), null);
+        for (Map.Entry<String, int[]> entry : stored.chunkEdits.entrySet()) snapshot.addStored(entry.getKey(), null, entry.getValue());
+        unsavedStored.clear();
+    }
+
+    // Escreve o chunk de data com a chave dada em evictedChunks; false se a escrita falhar
+    private boolean storeEvicted(String key, GameSaveData data) {
+        byte[] voxels = data.chunkVoxels.get(key);
+        int[] edits = data.chunkEdits.get(key);
+        if (voxels == null && edits == null) return true;
+        try {
+            evictedChunks.write(key, voxels, edits);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Erro ao guardar o chunk descarregado " + key + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public int getChangedChunkCount() {
+        int n = unsavedStored.size();
+        for (int i = 0; i < savedModCount.length; i++) {
+            Chunk c = chunkAt(i);
+            if (c != null && c.getModCount() != savedModCount[i]) n++;
+        }
+        return n;
+    }
+
+    // O conteúdo atual de todos os chunks passa a ser o que está no ficheiro
+    private void markAllSaved() {
+        for (int i = 0; i < savedModCount.length; i++) {
+            Chunk c = chunkAt(i);
+            if (c != null) savedModCount[i] = c.getModCount();
+        }
     }
 
     /**
      * Carrega os chunks a partir dos dados guardados.
+     * Com seed e versão do gerador o terreno é regenerado e só as diferenças guardadas são aplicadas.
      */
     public void loadChunksFromData(GameSaveData data) {
-        if (data.modifiedChunks == null) return;
+        pendingLoads.clear();
+        pendingRegions = null;
+        if (unbounded) loadStoredFromData(data);
+        else if (data.generatorVersion == 1 || data.generatorVersion == GENERATOR_VERSION) loadDiffsFromData(data);
+        else loadFullFromData(data);
+        if (data.journalEdits != null) replayJournal(data.journalEdits);
+    }
+
+    // Blocos mudados depois do último save (EditJournal): ficam por gravar, como se o jogador os tivesse feito agora
+    private void replayJournal(int[] edits) {
+        BlockEditListener listener = editListener;
+        editListener = null; // já estão no jornal
+        for (int i = 0; i + 3 < edits.length; i += 4) {
+            setBlock(edits[i], edits[i + 1], edits[i + 2], (byte) edits[i + 3]);
+        }
+        editListener = listener;
+        if (edits.length > 0) System.out.println("Jornal: repostas " + edits.length / 4 + " edições");
+    }
+
+    /**
+     * Mundo sem limites: o terreno volta a ser gerado à volta do jogador e os chunks do save ficam nas regiões
+     * (só as chaves em memória) até a coluna deles ser carregada, como os que foram descarregados durante o jogo.
+     * Os dos patches do autosave já estão descodificados em data e passam para evictedChunks.
+     */
+    private void loadStoredFromData(GameSaveData data) {
+        if (data.generatorVersion != GENERATOR_VERSION || data.worldSizeX != 0) {
+            System.out.println("Save de um mundo com limites ou de outra versão do gerador: os chunks guardados ficam por cima do terreno sem limites");
+        }
+        caveStep = data.caveStep; // o terreno tem de sair igual ao do save
+        generateLazily(data.worldSeed);
+        if (data.regions != null) {
+            for (String key : data.regions.chunkKeys()) {
+                if (!data.chunkVoxels.containsKey(key) && !data.chunkEdits.containsKey(key)) savedRegionKeys.add(key); // um patch do autosave é mais recente
+            }
+            if (!savedRegionKeys.isEmpty()) savedRegions = data.regions;
+        }
+        Set<String> patched = new HashSet<>(data.chunkVoxels.keySet());
+        patched.addAll(data.chunkEdits.keySet());
+        for (String key : patched) storeEvicted(key, data);
+    }
+
+    private void loadFullFromData(GameSaveData data) {
+        if (data.generatorVersion != 0) {
+            System.out.println("Save de outra versão do gerador (" + data.generatorVersion + "), a carregar só os chunks guardados");
+        }
+        if (data.regions != null) {
+            // Sem gerador não há terreno a mostrar enquanto as regiões carregam: lê-se tudo já (em paralelo)
+            List<int[]> coords = new ArrayList<>();
+            for (String key : data.regions.chunkKeys()) {
+                if (data.chunkVoxels.containsKey(key)) continue; // um patch do autosave é mais recente
+                coords.add(parseChunkKey(key));
+            }
+            data.regions.readAll(coords, data);
+        }
+        if (data.chunkVoxels == null || data.chunkVoxels.isEmpty()) return;
 
         // 1. Limpar mundo atual (encher de ar)
         for (int cx = 0; cx < chunkCountX; cx++) {
             for (int cy = 0; cy < chunkCountY; cy++) {
                 for (int cz = 0; cz < chunkCountZ; cz++) {
                     Chunk c = chunks[cx][cy][cz];
-                    for (int x = 0; x < Chunk.SIZE; x++)
-                        for (int y = 0; y < Chunk.SIZE; y++)
-                            for (int z = 0; z < Chunk.SIZE; z++)
-                                c.set(x, y, z, VoxelPalette.AIR_ID);
-                    c.markDirty();
+                    c.fill(VoxelPalette.AIR_ID);
+                    markChunkDirty(c);
                 }
             }
         }
 
-        // 2. Aplicar dados do save
-        for (Map.Entry<String, byte[][][]> entry : data.modifiedChunks.entrySet()) {
-            String[] parts = entry.getKey().split(",");
-            int cx = Integer.parseInt(parts[0]);
-            int cy = Integer.parseInt(parts[1]);
-            int cz = Integer.parseInt(parts[2]);
+        // 2. Aplicar dados do save (os saves antigos já chegam convertidos pelo LegacySaveMigrator)
+        for (Map.Entry<String, byte[]> entry : data.chunkVoxels.entrySet()) {
+            Chunk c = chunkForKey(entry.getKey());
+            if (c == null) continue;
+            c.copyFrom(entry.getValue());
+            markChunkDirty(c);
+        }
 
-            if (cx >= 0 && cx < chunkCountX && cy >= 0 && cy < chunkCountY && cz >= 0 && cz < chunkCountZ) {
-                Chunk c = chunks[cx][cy][cz];
-                byte[][][] savedVoxels = entry.getValue();
+        // Sem seed não há terreno gerado com que comparar
+        Arrays.fill(pristine, null);
+        pendingColumns.clear();
+        hasGeneratorBase = false;
+        markAllSaved();
+    }
 
-                for (int x = 0; x < Chunk.SIZE; x++) {
-                    for (int y = 0; y < Chunk.SIZE; y++) {
-                        for (int z = 0; z < Chunk.SIZE; z++) {
-                            c.set(x, y, z, savedVoxels[x][y][z]);
-                        }
-                    }
+    private void loadDiffsFromData(GameSaveData data) {
+        if (hasGeneratorBase && data.worldSeed == seed && data.caveStep == caveStep && data.generatorVersion == generatorVersion) {
+            // Mesmo terreno: basta repor os chunks editados desde a geração
+            for (int i = 0; i < pristine.length; i++) {
+                if (pristine[i] == null) continue;
+                Chunk c = chunkAt(i);
+                c.copyFrom(pristine[i]);
+                pristine[i] = null;
+                markChunkAndNeighborsDirty(c);
+            }
+        } else {
+            for (int i = 0; i < pristine.length; i++) chunkAt(i).fill(VoxelPalette.AIR_ID);
+            caveStep = data.caveStep; // o terreno tem de sair igual ao do save
+            if (data.generatorVersion == 1) generateLayers(data.worldSeed, 1);
+            else generateLazily(data.worldSeed);
+            for (int i = 0; i < pristine.length; i++) markChunkDirty(chunkAt(i));
+        }
+
+        // Chunks que vieram no próprio .dat (saves antigos e patches do autosave)
+        for (Map.Entry<String, byte[]> entry : data.chunkVoxels.entrySet()) {
+            Chunk c = chunkForKey(entry.getKey());
+            if (c != null) applySavedChunk(c, entry.getValue(), null);
+        }
+        for (Map.Entry<String, int[]> entry : data.chunkEdits.entrySet()) {
+            Chunk c = chunkForKey(entry.getKey());
+            if (c != null) applySavedChunk(c, null, entry.getValue());
+        }
+        markAllSaved();
+
+        // Chunks nas regiões: ficam pendentes e são lidos quando forem precisos (ver streamPendingChunks e getChunk)
+        if (data.regions != null) {
+            for (String key : data.regions.chunkKeys()) {
+                Chunk c = chunkForKey(key);
+                if (c == null || data.chunkVoxels.containsKey(key) || data.chunkEdits.containsKey(key)) continue;
+                pendingLoads.set(chunkIndex(c));
+            }
+            if (!pendingLoads.isEmpty()) pendingRegions = data.regions;
+        }
+    }
+
+    // Aplica um chunk guardado (inteiro ou lista de edições) por cima do conteúdo gerado
+    private void applySavedChunk(Chunk c, byte[] voxels, int[] edits) {
+        if (!pendingColumns.isEmpty()) ensureGenerated(c.getChunkX(), c.getChunkZ());
+        rememberPristine(c);
+        if (voxels != null) c.copyFrom(voxels);
+        if (edits != null) {
+            for (int edit : edits) {
+                int i = GameSaveData.editIndex(edit);
+                c.set(i >> 8, (i >> 4) & 15, i & 15, GameSaveData.editId(edit)); // inverso de Chunk.index()
+            }
+        }
+        markChunkAndNeighborsDirty(c);
+    }
+
+    /**
+     * Lê das regiões até maxChunks chunks pendentes, os mais próximos de near primeiro
+     * (chamado a cada frame pelo WorldAppState). Devolve quantos foram carregados.
+     */
+    public int streamPendingChunks(Vector3f near, int maxChunks) {
+        int[] batch = new int[Math.min(maxChunks, pendingLoads.cardinality())];
+        int loaded = 0;
+        while (loaded < batch.length) {
+            int best = -1;
+            float bestDist = Float.MAX_VALUE;
+            for (int i = pendingLoads.nextSetBit(0); i >= 0; i = pendingLoads.nextSetBit(i + 1)) {
+                Chunk c = chunkAt(i);
+                float dist = 0f;
+                if (near != null) {
+                    float dx = (c.getChunkX() + 0.5f) * chunkSize - near.x;
+                    float dy = (c.getChunkY() + 0.5f) * chunkSize - near.y;
+                    float dz = (c.getChunkZ() + 0.5f) * chunkSize - near.z;
+                    dist = dx * dx + dy * dy + dz * dz;
+                }
+                if (best < 0 || dist < bestDist) {
+                    best = i;
+                    bestDist = dist;
                 }
-                c.markDirty();
             }
+            pendingLoads.clear(best);
+            batch[loaded++] = best;
         }
+        loadPendingChunks(batch);
+        return loaded;
+    }
+
+    public int getPendingLoadCount() { return pendingLoads.cardinality(); }
+
+    // Carrega já o chunk se ainda estiver à espera das regiões (antes de ser lido ou editado)
+    private void ensureLoaded(int index) {
+        if (pendingLoads.get(index)) loadPendingChunk(index);
+    }
+
+    // Antes de um save completo: o que ainda está nas regiões tem de passar para o mundo
+    private void loadAllPendingChunks() {
+        if (!pendingLoads.isEmpty()) loadPendingChunks(pendingLoads.stream().toArray());
+    }
+
+    // Lê os chunks das regiões de uma vez (descompressão em paralelo, ver RegionStore.readAll) e aplica-os
+    private void loadPendingChunks(int[] indices) {
+        if (indices.length == 0) return;
+        List<int[]> coords = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            pendingLoads.clear(index);
+            Chunk c = chunkAt(index);
+            coords.add(new int[] { c.getChunkX(), c.getChunkY(), c.getChunkZ() });
+        }
+        GameSaveData saved = new GameSaveData();
+        pendingRegions.readAll(coords, saved);
+        for (int index : indices) {
+            Chunk c = chunkAt(index);
+            String key = c.getChunkX() + "," + c.getChunkY() + "," + c.getChunkZ();
+            applySavedChunk(c, saved.chunkVoxels.get(key), saved.chunkEdits.get(key));
+            savedModCount[index] = c.getModCount(); // igual ao que está no ficheiro
+        }
+        if (pendingLoads.isEmpty()) pendingRegions = null; // liberta os mapeamentos
+    }
+
+    private void loadPendingChunk(int index) {
+        pendingLoads.clear(index);
+        Chunk c = chunkAt(index);
+        GameSaveData saved = new GameSaveData();
+        readRegionChunk(pendingRegions, c.getChunkX(), c.getChunkY(), c.getChunkZ(), saved);
+        String key = c.getChunkX() + "," + c.getChunkY() + "," + c.getChunkZ();
+        applySavedChunk(c, saved.chunkVoxels.get(key), saved.chunkEdits.get(key));
+        savedModCount[index] = c.getModCount(); // igual ao que está no ficheiro
+        if (pendingLoads.isEmpty()) pendingRegions = null; // liberta os mapeamentos
+    }
+
+    private void readRegionChunk(RegionStore regions, int cx, int cy, int cz, GameSaveData into) {
+        try {
+            regions.read(cx, cy, cz, into);
+        } catch (IOException e) {
+            System.out.println("Erro ao ler o chunk " + cx + "," + cy + "," + cz + " da região: " + e.getMessage());
+        }
+    }
+
+    // Guarda o conteúdo gerado do chunk antes da primeira edição
+    private void rememberPristine(Chunk c) {
+        int i = chunkIndex(c);
+        if (pristine[i] != null) return;
+        pristine[i] = new byte[Chunk.VOLUME];
+        c.copyTo(pristine[i]);
+    }
+
+    // O conteúdo do chunk mudou todo de uma vez: as faces da borda dos vizinhos também podem mudar
+    private void markChunkAndNeighborsDirty(Chunk c) {
+        markChunkDirty(c);
+        int cx = c.getChunkX(), cy = c.getChunkY(), cz = c.getChunkZ();
+        markLoadedChunkDirty(cx - 1, cy, cz);
+        markLoadedChunkDirty(cx + 1, cy, cz);
+        markLoadedChunkDirty(cx, cy - 1, cz);
+        markLoadedChunkDirty(cx, cy + 1, cz);
+        markLoadedChunkDirty(cx, cy, cz - 1);
+        markLoadedChunkDirty(cx, cy, cz + 1);
+    }
+
+    private void markLoadedChunkDirty(int cx, int cy, int cz) {
+        Chunk c = chunkIfLoaded(cx, cy, cz);
+        if (c != null) markChunkDirty(c);
+    }
+
+    // Converte a chave "cx,cy,cz" do save no chunk correspondente (null se estiver fora do mundo)
+    private Chunk chunkForKey(String key) {
+        int[] parts = parseChunkKey(key);
+        int cx = parts[0], cy = parts[1], cz = parts[2];
+        if (cx < 0 || cx >= chunkCountX || cy < 0 || cy >= chunkCountY || cz < 0 || cz >= chunkCountZ) return null;
+        return chunks[cx][cy][cz];
+    }
+
+    static int[] parseChunkKey(String key) {
+        String[] parts = key.split(",");
+        return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]) };
     }
 
     // --- Acesso a Blocos e Chunks ---
 
     private Chunk getChunk(int x, int y, int z) {
-        int cx = x / chunkSize;
-        int cy = y / chunkSize;
-        int cz = z / chunkSize;
-        if (cx < 0 || cy < 0 || cz < 0 || cx >= chunkCountX || cy >= chunkCountY || cz >= chunkCountZ) return null;
+        int cx = Math.floorDiv(x, chunkSize);
+        int cy = Math.floorDiv(y, chunkSize);
+        int cz = Math.floorDiv(z, chunkSize);
+        Chunk c;
+        if (unbounded) {
+            if (cy < 0 || cy >= chunkCountY) return null;
+            c = loadedChunks.get(ChunkMap.key(cx, cy, cz));
+            if (c == null) {
+                loadColumn(cx, cz); // fora do raio de updateStreaming: gerada já, como em generateLazily
+                c = loadedChunks.get(ChunkMap.key(cx, cy, cz));
+            }
+        } else {
+            if (cx < 0 || cy < 0 || cz < 0 || cx >= chunkCountX || cy >= chunkCountY || cz >= chunkCountZ) return null;
+            if (!pendingColumns.isEmpty()) ensureGenerated(cx, cz);
+            c = chunks[cx][cy][cz];
+        }
+        int index = chunkIndex(c);
+        if (!pendingLoads.isEmpty()) ensureLoaded(index);
+        coldChunks.touch(c, index);
+        return c;
+    }
+
+    // Chunk nas coordenadas dadas sem o gerar nem carregar (null fora do mundo ou numa coluna descarregada)
+    private Chunk chunkIfLoaded(int cx, int cy, int cz) {
+        if (cy < 0 || cy >= chunkCountY) return null;
+        if (unbounded) return loadedChunks.get(ChunkMap.key(cx, cy, cz));
+        if (cx < 0 || cz < 0 || cx >= chunkCountX || cz >= chunkCountZ) return null;
+        return chunks[cx][cy][cz];
+    }
+
+    private int chunkIndex(Chunk c) {
+        if (unbounded) return c.getWorldIndex();
+        return (c.getChunkX() * chunkCountY + c.getChunkY()) * chunkCountZ + c.getChunkZ();
+    }
+
+    // Chunk do índice dado; sem limites é null nos índices livres
+    Chunk chunkAt(int index) {
+        if (unbounded) return chunksByIndex[index];
+        int cz = index % chunkCountZ;
+        int cy = (index / chunkCountZ) % chunkCountY;
+        int cx = index / (chunkCountZ * chunkCountY);
         return chunks[cx][cy][cz];
     }
 
-    private int lx(int x) { return x % chunkSize; }
-    private int ly(int y) { return y % chunkSize; }
-    private int lz(int z) { return z % chunkSize; }
+    // Marca o chunk para reconstrução; a malha é refeita pelo rebuildDirtyChunks dos próximos frames
+    private void markChunkDirty(Chunk c) {
+        c.markDirty();
+        dirtyChunks.set(chunkIndex(c));
+    }
+
+    private int lx(int x) { return Math.floorMod(x, chunkSize); }
+    private int ly(int y) { return Math.floorMod(y, chunkSize); }
+    private int lz(int z) { return Math.floorMod(z, chunkSize); }
 
     public byte getBlock(int x, int y, int z) {
         Chunk c = getChunk(x, y, z);
@@ -159,11 +650,30 @@ public class VoxelWorld {
         return c.get(lx(x), ly(y), lz(z));
     }
 
+    // Como getBlock, mas uma coluna ainda por gerar (ou descarregada, sem limites) conta como ar em vez de ser gerada já
+    private byte peekBlock(int x, int y, int z) {
+        if (unbounded) {
+            if (!loadedChunks.containsKey(ChunkMap.key(Math.floorDiv(x, chunkSize), 0, Math.floorDiv(z, chunkSize)))) {
+                return VoxelPalette.AIR_ID;
+            }
+        } else if (!pendingColumns.isEmpty() && inBounds(x, y, z) && pendingColumns.get((x / chunkSize) * chunkCountZ + z / chunkSize)) {
+            return VoxelPalette.AIR_ID;
+        }
+        return getBlock(x, y, z);
+    }
+
     public void setBlock(int x, int y, int z, byte id) {
         Chunk c = getChunk(x, y, z);
         if (c != null) {
+            byte old = c.get(lx(x), ly(y), lz(z));
+            if (old == id) return;
+            if (trackEdits) rememberPristine(c);
             c.set(lx(x), ly(y), lz(z), id);
-            c.markDirty();
+            markChunkDirty(c);
+            if (trackEdits && editListener != null) editListener.blockChanged(x, y, z, id); // não durante a geração
+
+            // As faces do chunk vizinho só mudam se o bloco passou de sólido a não sólido (ou vice-versa)
+            if (palette.get(old).isSolid() == palette.get(id).isSolid()) return;
 
             // Atualizar chunks vizinhos se estivermos na borda
             if (lx(x) == 0) markNeighborChunkDirty(x-1, y, z);
@@ -175,10 +685,42 @@ public class VoxelWorld {
         }
     }
 
-    // Garante que não ficam buracos visuais entre chunks quando se parte blocos na borda
+    // Garante que não ficam buracos visuais entre chunks quando se parte blocos na borda.
+    // Se do outro lado só houver ar não existe nenhuma face a aparecer ou desaparecer.
     private void markNeighborChunkDirty(int x, int y, int z) {
-        Chunk n = getChunk(x, y, z);
-        if (n != null) n.markDirty();
+        if (peekBlock(x, y, z) != VoxelPalette.AIR_ID) markChunkDirty(getChunk(x, y, z));
+    }
+
+    /**
+     * Copia o chunk para um snapshot PADDED^3 (ver Chunk.paddedIndex) com a casca de 1 vóxel dos
+     * chunks vizinhos. Fora do mundo a casca é ar, para as faces da borda do mapa continuarem visíveis.
+     * As colunas vizinhas ainda por gerar também contam como ar (ensureGenerated volta a marcar este chunk).
+     */
+    public byte[] snapshotPadded(Chunk c, byte[] out) {
+        int ox = c.getChunkX() * chunkSize;
+        int oy = c.getChunkY() * chunkSize;
+        int oz = c.getChunkZ() * chunkSize;
+
+        // Interior: uma camada de cada vez, linha a linha
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            c.copySlabTo(x, slabScratch);
+            for (int y = 0; y < Chunk.SIZE; y++) {
+                System.arraycopy(slabScratch, y * Chunk.SIZE, out, Chunk.paddedIndex(x, y, 0), Chunk.SIZE);
+            }
+        }
+
+        // Casca: células com pelo menos uma coordenada em -1 ou SIZE
+        for (int x = -1; x <= Chunk.SIZE; x++) {
+            boolean xEdge = x < 0 || x == Chunk.SIZE;
+            for (int y = -1; y <= Chunk.SIZE; y++) {
+                boolean edge = xEdge || y < 0 || y == Chunk.SIZE;
+                int step = edge ? 1 : Chunk.SIZE + 1; // no interior de x,y só z=-1 e z=SIZE pertencem à casca
+                for (int z = -1; z <= Chunk.SIZE; z += step) {
+                    out[Chunk.paddedIndex(x, y, z)] = peekBlock(ox + x, oy + y, oz + z);
+                }
+            }
+        }
+        return out;
     }
 
     // Gere a lógica de destruir um bloco, protegendo os limites do mapa e a rocha indestrutível.
@@ -195,90 +737,493 @@ public class VoxelWorld {
     // --- Geração Procedimental ---
 
     public void generateLayers() {
-        long seed = new Random().nextLong();
-
-        // --- CONFIGURAÇÕES DE GERAÇÃO ---
-        final int GROUND_BASE = 20;
-        final float NOISE_SCALE = 0.03f;
-        final int AMPLITUDE = 6;
-        final int MAP_LIMIT = 60;
-        final int SAND_WIDTH = 8;
-        final int WATER_WIDTH = 11;
-        final int WATER_LEVEL = 16;
-        final double CAVE_THRESHOLD = 0.60;
+        generateLayers(new Random().nextLong());
+    }
 
-        int centerX = sizeX / 2;
-        int centerZ = sizeZ / 2;
+    /**
+     * Gera o mundo inteiro a partir da seed. Para a mesma seed e GENERATOR_VERSION o resultado é sempre igual,
+     * o que permite aos saves guardarem só as diferenças. Espera um mundo só de ar.
+     * As colunas de chunks são geradas em paralelo por etapas (ver generateAllColumns); o resultado é o mesmo
+     * que o de generateLazily com as colunas geradas por qualquer ordem.
+     */
+    public void generateLayers(long seed) {
+        generateLayers(seed, GENERATOR_VERSION);
+    }
 
+    // A versão 1 (saves antigos) tem os decoradores de um só Random para o mapa todo, numa só thread
+    private void generateLayers(long seed, int version) {
+        if (unbounded) throw new IllegalStateException("Um mundo sem limites só é gerado a pedido (generateLazily)");
+        beginGeneration(seed, version);
         System.out.println("A gerar terreno com seed: " + seed);
 
-        // 1. Iterar por todas as colunas do mundo
-        for (int x = 0; x < sizeX; x++) {
-            for (int z = 0; z < sizeZ; z++) {
+        if (version == 1) {
+            // 1. Relevo, água e cavernas
+            forEachColumn((cx, cz) -> commitColumn(cx, cz, columnTerrain(seed, cx, cz)));
+
+            // 2. Decoradores e Minérios
+            int centerX = sizeX / 2;
+            int centerZ = sizeZ / 2;
+            generateOreVeins(seed);
+            generateTrees(seed, centerX, centerZ, MAP_LIMIT);
+            generateSpikyTrees(seed, centerX, centerZ, MAP_LIMIT);
+            generateTargets(seed);
+        } else {
+            generateAllColumns();
+        }
 
-                int dist = Math.max(Math.abs(x - centerX), Math.abs(z - centerZ));
-                double noise = OpenSimplexNoise.OpenSimplex2S.noise2(seed, x * NOISE_SCALE, z * NOISE_SCALE);
+        // O mesmo que os setBlock marcavam: todos os chunks com alguma coisa além de ar
+        for (int i = 0; i < pristine.length; i++) {
+            Chunk c = chunkAt(i);
+            if (!c.isEmpty()) markChunkDirty(c);
+        }
+        finishGeneration();
+        System.out.println("Terreno gerado com sucesso!");
+    }
+
+    public void generateLazily() {
+        generateLazily(new Random().nextLong());
+    }
+
+    /**
+     * Prepara o mundo para ser gerado a pedido: nenhuma coluna de chunks é gerada já. Cada coluna é gerada
+     * quando um bloco dela é pedido (getBlock, setBlock, getTopSolidY, ...) ou por generatePendingColumns,
+     * e fica igual à que generateLayers geraria. Espera um mundo só de ar.
+     */
+    public void generateLazily(long seed) {
+        beginGeneration(seed, GENERATOR_VERSION);
+        if (unbounded) unloadAllColumns(); // as colunas são carregadas por updateStreaming
+        else pendingColumns.set(0, chunkCountX * chunkCountZ);
+        finishGeneration();
+        System.out.println("Terreno com seed " + seed + " gerado a pedido");
+    }
+
+    private void beginGeneration(long seed, int version) {
+        this.seed = seed;
+        this.generatorVersion = version;
+        trackEdits = false;
+        Arrays.fill(pristine, null);
+        pendingColumns.clear();
+        decorations = unbounded ? null : new int[chunkCountX * chunkCountZ][];
+    }
+
+    private void finishGeneration() {
+        trackEdits = true;
+        hasGeneratorBase = true;
+        markAllSaved(); // o terreno gerado não precisa de ir para o save
+    }
+
+    // --- Geração por colunas de chunks ---
+    //
+    // Etapa 1 (columnTerrain): relevo, água e cavernas de uma coluna; só depende da seed e de (cx, cz).
+    // Etapa 2 (columnDecorations): minérios, árvores e alvos com âncora na coluna, como uma lista de escritas
+    //   que pode sair até uma coluna para cada lado; só depende da seed, de (cx, cz) e do relevo da própria coluna.
+    // Etapa 3 (decorate): o conteúdo final de uma coluna é o seu relevo mais as escritas das 3x3 colunas à volta,
+    //   aplicadas sempre pela mesma ordem (âncoras por cx e depois cz), por isso não depende da ordem de geração.
+
+    private interface ColumnTask {
+        void run(int cx, int cz);
+    }
+
+    /**
+     * Corre a tarefa para cada coluna de chunks (todos os cy de um par cx, cz) no ForkJoinPool.
+     * As tarefas só escrevem nos chunks (ou nos dados) da sua coluna, diretamente no armazenamento (sem setBlock),
+     * por isso o resultado é o mesmo com qualquer número de threads (ver TerrainGenerationBenchmark).
+     */
+    private void forEachColumn(ColumnTask task) {
+        if (generationThreads <= 1) {
+            for (int cx = 0; cx < chunkCountX; cx++)
+                for (int cz = 0; cz < chunkCountZ; cz++)
+                    task.run(cx, cz);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(chunkCountX * chunkCountZ);
+        for (int cx = 0; cx < chunkCountX; cx++) {
+            for (int cz = 0; cz < chunkCountZ; cz++) {
+                int fcx = cx, fcz = cz;
+                tasks.add(() -> {
+                    task.run(fcx, fcz);
+                    return null;
+                });
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(generationThreads);
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Geração interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Erro na geração do terreno", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // As três etapas para o mundo inteiro: o relevo de todas as colunas fica em memória entre as etapas
+    private void generateAllColumns() {
+        byte[][][] terrain = new byte[chunkCountX * chunkCountZ][][];
+        forEachColumn((cx, cz) -> {
+            int col = cx * chunkCountZ + cz;
+            terrain[col] = columnTerrain(seed, cx, cz);
+            decorations[col] = columnDecorations(cx, cz, terrain[col]);
+        });
+        forEachColumn((cx, cz) -> {
+            byte[][] cells = terrain[cx * chunkCountZ + cz];
+            decorate(cx, cz, cells);
+            commitColumn(cx, cz, cells);
+        });
+    }
+
+    // Gera já a coluna se ainda estiver por gerar (antes de um bloco dela ser lido ou editado)
+    private void ensureGenerated(int cx, int cz) {
+        int col = cx * chunkCountZ + cz;
+        if (!pendingColumns.get(col)) return;
+        pendingColumns.clear(col);
+        commitColumn(cx, cz, generateColumn(cx, cz));
+
+        for (int cy = 0; cy < chunkCountY; cy++) {
+            Chunk c = chunks[cx][cy][cz];
+            savedModCount[chunkIndex(c)] = c.getModCount(); // conteúdo gerado, não precisa de ir para o save
+            if (!c.isEmpty()) markChunkAndNeighborsDirty(c); // a casca dos vizinhos contava esta coluna como ar
+        }
+    }
+
+    // As três etapas para uma só coluna; calcula primeiro as decorações das colunas vizinhas que ainda não
+    // estão calculadas (precisam do relevo delas)
+    private byte[][] generateColumn(int cx, int cz) {
+        byte[][] cells = null;
+        for (int ax = cx - 1; ax <= cx + 1; ax++) {
+            for (int az = cz - 1; az <= cz + 1; az++) {
+                if (!hasColumn(ax, az) || decorationsOf(ax, az) != null) continue;
+                byte[][] terrain = columnTerrain(seed, ax, az);
+                putDecorations(ax, az, columnDecorations(ax, az, terrain));
+                if (ax == cx && az == cz) cells = terrain;
+            }
+        }
+        if (cells == null) cells = columnTerrain(seed, cx, cz);
+        decorate(cx, cz, cells);
+        return cells;
+    }
+
+    // True se a coluna existe (nos mundos sem limites, todas)
+    private boolean hasColumn(int cx, int cz) {
+        return unbounded || (cx >= 0 && cz >= 0 && cx < chunkCountX && cz < chunkCountZ);
+    }
+
+    // Decorações já calculadas da coluna, ou null
+    private int[] decorationsOf(int cx, int cz) {
+        return unbounded ? decorationCache.get(ChunkMap.key(cx, 0, cz)) : decorations[cx * chunkCountZ + cz];
+    }
+
+    private void putDecorations(int cx, int cz, int[] writes) {
+        if (unbounded) decorationCache.put(ChunkMap.key(cx, 0, cz), writes);
+        else decorations[cx * chunkCountZ + cz] = writes;
+    }
+
+    /**
+     * Gera até maxColumns colunas de chunks ainda por gerar, as mais próximas de near primeiro
+     * (chamado a cada frame pelo WorldAppState). Devolve quantas foram geradas.
+     * Sem limites: as colunas por carregar a menos de viewRadius (loadColumnsAround).
+     */
+    public int generatePendingColumns(Vector3f near, int maxColumns) {
+        if (unbounded) return loadColumnsAround(near, maxColumns);
+        int generated = 0;
+        while (generated < maxColumns && !pendingColumns.isEmpty()) {
+            int best = -1;
+            float bestDist = Float.MAX_VALUE;
+            for (int col = pendingColumns.nextSetBit(0); col >= 0; col = pendingColumns.nextSetBit(col + 1)) {
+                float dist = 0f;
+                if (near != null) {
+                    float dx = (col / chunkCountZ + 0.5f) * chunkSize - near.x;
+                    float dz = (col % chunkCountZ + 0.5f) * chunkSize - near.z;
+                    dist = dx * dx + dz * dz;
+                }
+                if (best < 0 || dist < bestDist) {
+                    best = col;
+                    bestDist = dist;
+                }
+            }
+            ensureGenerated(best / chunkCountZ, best % chunkCountZ);
+            generated++;
+        }
+        return generated;
+    }
+
+    public int getPendingColumnCount() { return pendingColumns.cardinality(); }
+
+    // Passa as células geradas de uma coluna para os chunks: um copyFrom por chunk (ou um fill, se for todo do mesmo bloco)
+    private void commitColumn(int cx, int cz, byte[][] cells) {
+        for (int cy = 0; cy < chunkCountY; cy++) {
+            byte[] c = cells[cy];
+            byte first = c[0];
+            int i = 1;
+            while (i < Chunk.VOLUME && c[i] == first) i++;
+            Chunk chunk = chunkIfLoaded(cx, cy, cz);
+            if (i == Chunk.VOLUME) chunk.fill(first);
+            else chunk.copyFrom(c);
+        }
+    }
+
+    // Etapa 1: células do relevo da coluna (cx, cz), um array de Chunk.VOLUME por cy (layout de Chunk.index)
+    private byte[][] columnTerrain(long seed, int cx, int cz) {
+        byte[][] cells = new byte[chunkCountY][Chunk.VOLUME];
+        int centerX = sizeX / 2;
+        int centerZ = sizeZ / 2;
+
+        // Alturas das 16x16 colunas numa só chamada; as cavernas só se a coluna tiver terra (ver caveNoise)
+        double[] xs = new double[chunkSize], zs = new double[chunkSize];
+        for (int i = 0; i < chunkSize; i++) {
+            xs[i] = (cx * chunkSize + i) * NOISE_SCALE;
+            zs[i] = (cz * chunkSize + i) * NOISE_SCALE;
+        }
+        float[] heights = new float[chunkSize * chunkSize];
+        OpenSimplexNoise.OpenSimplex2S.noise2(seed, xs, zs, heights);
+        float[] caves = null;
+
+        for (int lx = 0; lx < chunkSize; lx++) {
+            int x = cx * chunkSize + lx;
+            if (!unbounded && x >= sizeX) break;
+            for (int lz = 0; lz < chunkSize; lz++) {
+                int z = cz * chunkSize + lz;
+                if (!unbounded && z >= sizeZ) break;
+
+                int dist = unbounded ? 0 : Math.max(Math.abs(x - centerX), Math.abs(z - centerZ)); // sem limites não há ilha
+                double noise = heights[lx * chunkSize + lz];
                 int height = GROUND_BASE + (int)(noise * AMPLITUDE);
 
                 // Determinar altura máxima do loop (para nivelar a água nas bordas)
                 int loopHeight = (dist > MAP_LIMIT) ? sizeY : (height + 1);
 
                 for (int y = 0; y < loopHeight && y < sizeY; y++) {
+                    byte id = VoxelPalette.AIR_ID;
 
-                    // A. Zona Fora do Mapa (Vazio)
                     if (dist > MAP_LIMIT + SAND_WIDTH + WATER_WIDTH) {
-                        setBlock(x, y, z, VoxelPalette.AIR_ID);
-                        continue;
+                        // A. Zona Fora do Mapa (Vazio)
+                        break;
+                    } else if (dist > MAP_LIMIT + SAND_WIDTH) {
+                        // B. Zona de Água
+                        if (y <= WATER_LEVEL) id = VoxelPalette.WATER_ID;
+                    } else if (dist > MAP_LIMIT) {
+                        // C. Zona de Areia
+                        if (y == 0) id = VoxelPalette.THEROCK_ID;
+                        else if (y == height) id = VoxelPalette.SAND_ID;
+                        else if (y < height) id = VoxelPalette.STONE_ID;
+                    } else if (y == 0) {
+                        // Bedrock no fundo
+                        id = VoxelPalette.THEROCK_ID;
+                    } else {
+                        // D. Zona Normal (Terra), com cavernas entre y=1 e CAVE_TOP-1
+                        if (caves == null && y < CAVE_TOP) caves = caveNoise(seed, cx, cz);
+                        boolean cave = y < CAVE_TOP && caves[(lx * (CAVE_TOP - 1) + y - 1) * chunkSize + lz] > CAVE_THRESHOLD;
+                        if (cave) id = VoxelPalette.AIR_ID;
+                        else if (y == height) id = VoxelPalette.GRASS_ID;
+                        else if (y > height - 3) id = VoxelPalette.DIRT_ID;
+                        else id = VoxelPalette.STONE_ID;
                     }
 
-                    // B. Zona de Água
-                    if (dist > MAP_LIMIT + SAND_WIDTH) {
-                        if (y <= WATER_LEVEL) setBlock(x, y, z, VoxelPalette.WATER_ID);
-                        else setBlock(x, y, z, VoxelPalette.AIR_ID);
-                        continue;
-                    }
+                    cells[y / chunkSize][Chunk.index(lx, y % chunkSize, lz)] = id;
+                }
+            }
+        }
 
-                    // C. Zona de Areia
-                    if (dist > MAP_LIMIT) {
-                        if (y <= height) {
-                            if (y == height) setBlock(x, y, z, VoxelPalette.SAND_ID);
-                            else setBlock(x, y, z, VoxelPalette.STONE_ID);
-                        }
-                        if (y == 0) setBlock(x, 0, z, VoxelPalette.THEROCK_ID);
-                        continue;
+        return cells;
+    }
+
+    // Ruído das cavernas da coluna (cx, cz) para y de 1 a CAVE_TOP-1, índice (lx * (CAVE_TOP-1) + y-1) * SIZE + lz.
+    // Com caveStep > 1 o ruído só é calculado nos vóxeis múltiplos de caveStep (coordenadas do mundo, por isso as
+    // colunas vizinhas calculam os mesmos pontos e não há costuras) e interpolado trilinearmente entre eles
+    private float[] caveNoise(long seed, int cx, int cz) {
+        int ox = cx * chunkSize, oz = cz * chunkSize;
+        int step = caveStep;
+        int gx0 = Math.floorDiv(ox, step), gy0 = Math.floorDiv(1, step), gz0 = Math.floorDiv(oz, step);
+        int nx = Math.floorDiv(ox + chunkSize - 1, step) - gx0 + (step > 1 ? 2 : 1);
+        int ny = Math.floorDiv(CAVE_TOP - 1, step) - gy0 + (step > 1 ? 2 : 1);
+        int nz = Math.floorDiv(oz + chunkSize - 1, step) - gz0 + (step > 1 ? 2 : 1);
+
+        double[] xs = new double[nx], ys = new double[ny], zs = new double[nz];
+        for (int i = 0; i < nx; i++) xs[i] = ((gx0 + i) * step) * CAVE_SCALE;
+        for (int j = 0; j < ny; j++) ys[j] = ((gy0 + j) * step) * CAVE_SCALE;
+        for (int k = 0; k < nz; k++) zs[k] = ((gz0 + k) * step) * CAVE_SCALE;
+        float[] lattice = new float[nx * ny * nz];
+        OpenSimplexNoise.OpenSimplex2S.noise3_Fallback(seed + 9999, xs, ys, zs, lattice);
+        if (step == 1) return lattice; // já é a grelha de vóxeis
+
+        float[] out = new float[chunkSize * (CAVE_TOP - 1) * chunkSize];
+        int n = 0;
+        for (int lx = 0; lx < chunkSize; lx++) {
+            int i = Math.floorDiv(ox + lx, step) - gx0;
+            float tx = Math.floorMod(ox + lx, step) / (float) step;
+            for (int y = 1; y < CAVE_TOP; y++) {
+                int j = Math.floorDiv(y, step) - gy0;
+                float ty = Math.floorMod(y, step) / (float) step;
+                for (int lz = 0; lz < chunkSize; lz++) {
+                    int k = Math.floorDiv(oz + lz, step) - gz0;
+                    float tz = Math.floorMod(oz + lz, step) / (float) step;
+                    int p = (i * ny + j) * nz + k;      // canto (i, j, k) da célula
+                    int dx = ny * nz, dy = nz;
+                    float c00 = lerp(lattice[p], lattice[p + dx], tx);
+                    float c01 = lerp(lattice[p + 1], lattice[p + dx + 1], tx);
+                    float c10 = lerp(lattice[p + dy], lattice[p + dx + dy], tx);
+                    float c11 = lerp(lattice[p + dy + 1], lattice[p + dx + dy + 1], tx);
+                    out[n++] = lerp(lerp(c00, c01, tz), lerp(c10, c11, tz), ty);
+                }
+            }
+        }
+        return out;
+    }
+
+    private static float lerp(float a, float b, float t) { return a + (b - a) * t; }
+
+    // Regras das escritas das decorações: quando é que uma escrita substitui o bloco que lá está
+    private static final int DECO_ALWAYS = 0, DECO_IF_STONE = 1, DECO_IF_AIR = 2, DECO_IF_AIR_OR_LEAF = 3;
+
+    // Densidade das decorações por coluna de chunks (as da versão 1 para um mapa de 256x256, a dividir por 256 colunas)
+    private static final int COAL_VEINS = 20, IRON_VEINS = 16, DIAMOND_VEINS = 3;
+    private static final int TREE_CHANCE = 400, SPIKY_TREE_CHANCE = 1000;
+    private static final int TARGET_CHANCE = 4; // só as colunas da ilha têm chão: dá perto dos 20 alvos da versão 1
+
+    // Seed de uma coluna de chunks: só depende da seed do mundo e das coordenadas (mistura do SplitMix64)
+    private long columnSeed(int cx, int cz) {
+        long h = seed ^ (cx * 0x9E3779B97F4A7C15L) ^ (cz * 0xC2B2AE3D27D4EB4FL);
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Etapa 2: decorações com âncora na coluna (cx, cz), como escritas {x, y, z, regra << 8 | id} em coordenadas
+     * do mundo. Usa um Random com a seed da coluna e só olha para o relevo da própria coluna; as escritas podem
+     * cair nas colunas vizinhas (copas e veias) e a regra é avaliada quando são aplicadas (ver decorate).
+     */
+    private int[] columnDecorations(int cx, int cz, byte[][] terrain) {
+        Random random = new Random(columnSeed(cx, cz));
+        int ox = cx * chunkSize, oz = cz * chunkSize;
+        int width = unbounded ? chunkSize : Math.min(chunkSize, sizeX - ox);
+        int depth = unbounded ? chunkSize : Math.min(chunkSize, sizeZ - oz);
+        int centerX = sizeX / 2, centerZ = sizeZ / 2;
+        DecorationList out = new DecorationList();
+
+        // Minérios: veias a partir de um ponto da coluna (só substituem pedra)
+        for (int i = 0; i < COAL_VEINS; i++) addVein(out, random, ox + random.nextInt(width), oz + random.nextInt(depth), VoxelPalette.COAL_ID, sizeY, 6 + random.nextInt(5));
+        for (int i = 0; i < IRON_VEINS; i++) addVein(out, random, ox + random.nextInt(width), oz + random.nextInt(depth), VoxelPalette.IRON_ID, 55, 4 + random.nextInt(4));
+        for (int i = 0; i < DIAMOND_VEINS; i++) addVein(out, random, ox + random.nextInt(width), oz + random.nextInt(depth), VoxelPalette.DIAMOND_ID, 16, 2 + random.nextInt(3));
+
+        // Árvores simples e espinhosas em relva, dentro da ilha (sem limites, em qualquer sítio)
+        for (int spiky = 0; spiky < 2; spiky++) {
+            for (int lx = 0; lx < width; lx++) {
+                for (int lz = 0; lz < depth; lz++) {
+                    int x = ox + lx, z = oz + lz;
+                    if (!unbounded) {
+                        if (x < 2 || z < 2 || x >= sizeX - 2 || z >= sizeZ - 2) continue;
+                        if (Math.max(Math.abs(x - centerX), Math.abs(z - centerZ)) > MAP_LIMIT) continue;
                     }
+                    if (random.nextInt(spiky == 0 ? TREE_CHANCE : SPIKY_TREE_CHANCE) != 0) continue;
+
+                    int y = topSolidY(terrain, lx, lz);
+                    if (y < 0 || terrainAt(terrain, lx, y, lz) != VoxelPalette.GRASS_ID) continue;
 
-                    // D. Zona Normal (Terra)
-                    if (y <= height) {
-                        // Geração de Cavernas
-                        if (y > 0 && y < 20) {
-                            double caveNoise = OpenSimplexNoise.OpenSimplex2S.noise3_Fallback(seed + 9999, x * 0.04, y * 0.04, z * 0.04);
-                            if (caveNoise > CAVE_THRESHOLD) {
-                                setBlock(x, y, z, VoxelPalette.AIR_ID);
-                                continue;
+                    int treeHeight = 4 + random.nextInt(3);
+                    for (int h = 1; h <= treeHeight; h++) {
+                        if (spiky == 0) out.add(x, y + h, z, VoxelPalette.Wood_ID, DECO_ALWAYS);
+                        else out.add(x, y + h, z, VoxelPalette.SpikyWood_ID, DECO_IF_AIR_OR_LEAF);
+                    }
+                    int top = y + treeHeight;
+                    for (int dx = -2; dx <= 2; dx++) {
+                        for (int dz = -2; dz <= 2; dz++) {
+                            for (int dy = 0; dy <= 2; dy++) {
+                                if (random.nextInt(6) == 0) continue; // Pequena aleatoriedade nas folhas
+                                out.add(x + dx, top + dy, z + dz, VoxelPalette.Leaf_ID, spiky == 0 ? DECO_ALWAYS : DECO_IF_AIR);
                             }
                         }
-
-                        if (y == height) setBlock(x, y, z, VoxelPalette.GRASS_ID);
-                        else if (y > height - 3) setBlock(x, y, z, VoxelPalette.DIRT_ID);
-                        else setBlock(x, y, z, VoxelPalette.STONE_ID);
                     }
+                }
+            }
+        }
+
+        // Alvos, no chão ou a flutuar
+        if (random.nextInt(TARGET_CHANCE) == 0) {
+            int lx = random.nextInt(width), lz = random.nextInt(depth);
+            int x = ox + lx, z = oz + lz;
+            int y = topSolidY(terrain, lx, lz);
+            boolean floating = random.nextBoolean();
+            int height = floating ? 3 + random.nextInt(3) : 1;
+            boolean inside = unbounded || (x >= 2 && z >= 2 && x < sizeX - 2 && z < sizeZ - 2);
+            if (inside && y > 0 && y < sizeY - 5) {
+                out.add(x, y + height, z, VoxelPalette.TARGET_ID, DECO_ALWAYS);
+            }
+        }
+        return out.toArray();
+    }
+
+    // Veia de minério: passeio aleatório a partir de (x, y, z) (a veia da versão 1 só andava quando encontrava
+    // pedra, o que dependia das colunas vizinhas)
+    private static void addVein(DecorationList out, Random random, int x, int z, byte oreId, int maxHeight, int size) {
+        int y = random.nextInt(maxHeight);
+        for (int i = 0; i < size; i++) {
+            x += random.nextInt(3) - 1;
+            y += random.nextInt(3) - 1;
+            z += random.nextInt(3) - 1;
+            out.add(x, y, z, oreId, DECO_IF_STONE);
+        }
+    }
 
-                    // Bedrock no fundo
-                    if (y == 0) setBlock(x, 0, z, VoxelPalette.THEROCK_ID);
+    // Etapa 3: aplica às células da coluna (cx, cz) as escritas das colunas vizinhas que caem dentro dela
+    private void decorate(int cx, int cz, byte[][] cells) {
+        int ox = cx * chunkSize, oz = cz * chunkSize;
+        for (int ax = cx - 1; ax <= cx + 1; ax++) {
+            for (int az = cz - 1; az <= cz + 1; az++) {
+                if (!hasColumn(ax, az)) continue;
+                int[] d = decorationsOf(ax, az);
+                for (int i = 0; i < d.length; i += 4) {
+                    int x = d[i] - ox, y = d[i + 1], z = d[i + 2] - oz;
+                    if (x < 0 || z < 0 || x >= chunkSize || z >= chunkSize || y < 0 || y >= sizeY) continue;
+                    if (!unbounded && (x + ox >= sizeX || z + oz >= sizeZ)) continue;
+                    byte[] chunkCells = cells[y / chunkSize];
+                    int index = Chunk.index(x, y % chunkSize, z);
+                    byte current = chunkCells[index];
+                    byte id = (byte) d[i + 3];
+                    boolean write = switch (d[i + 3] >> 8) {
+                        case DECO_IF_STONE -> current == VoxelPalette.STONE_ID;
+                        case DECO_IF_AIR -> current == VoxelPalette.AIR_ID;
+                        case DECO_IF_AIR_OR_LEAF -> current == VoxelPalette.AIR_ID || current == VoxelPalette.Leaf_ID;
+                        default -> true;
+                    };
+                    if (write) chunkCells[index] = id;
                 }
             }
         }
+    }
 
-        // 2. Decoradores e Minérios
-        generateOreVeins(seed);
-        generateTrees(seed, centerX, centerZ, MAP_LIMIT);
-        generateSpikyTrees(seed, centerX, centerZ, MAP_LIMIT);
-        generateTargets(seed);
+    private byte terrainAt(byte[][] cells, int lx, int y, int lz) {
+        return cells[y / chunkSize][Chunk.index(lx, y % chunkSize, lz)];
+    }
 
-        System.out.println("Terreno gerado com sucesso!");
+    // Como getTopSolidY, mas nas células de uma coluna ainda por passar para os chunks
+    private int topSolidY(byte[][] cells, int lx, int lz) {
+        for (int y = sizeY - 1; y >= 0; y--) {
+            if (isSolidId(terrainAt(cells, lx, y, lz))) return y;
+        }
+        return -1;
     }
 
+    // Lista de escritas de columnDecorations (4 ints por escrita)
+    private static final class DecorationList {
+        private int[] data = new int[256];
+        private int size = 0;
+
+        void add(int x, int y, int z, byte id, int rule) {
+            if (size + 4 > data.length) data = Arrays.copyOf(data, data.length * 2);
+            data[size++] = x;
+            data[size++] = y;
+            data[size++] = z;
+            data[size++] = rule << 8 | Byte.toUnsignedInt(id);
+        }
+
+        int[] toArray() { return Arrays.copyOf(data, size); }
+    }
+
+    // --- Decoradores da versão 1 do gerador (um Random para o mapa inteiro; só para regenerar saves antigos) ---
+
     // Gera árvores simples em áreas de relva
     private void generateTrees(long seed, int centerX, int centerZ, int mapLimit) {
         Random random = new Random(seed + 12345);
@@ -407,16 +1352,263 @@ public class VoxelWorld {
         System.out.println("Alvos colocados: " + placed);
     }
 
+    // --- Mundo sem limites: colunas carregadas à volta do jogador ---
+
+    /**
+     * A cada frame (WorldAppState): carrega até maxLoadsPerFrame colunas de chunks a menos de viewRadius chunks
+     * de near, as mais próximas primeiro, e descarrega até maxUnloadsPerFrame das que estão a mais de unloadRadius,
+     * as mais longe primeiro. Enquanto o jogador não muda de coluna e não há nada por fazer não percorre nada.
+     * Devolve o número de colunas carregadas mais descarregadas.
+     */
+    public int updateStreaming(Vector3f near) {
+        if (!unbounded || near == null) return 0;
+        int pcx = Math.floorDiv((int) Math.floor(near.x), chunkSize);
+        int pcz = Math.floorDiv((int) Math.floor(near.z), chunkSize);
+        if (streamSettled && pcx == streamCenterX && pcz == streamCenterZ) return 0;
+        int loaded = loadColumnsAround(near, maxLoadsPerFrame);
+        int unloaded = unloadDistantColumns(near, maxUnloadsPerFrame);
+        streamCenterX = pcx;
+        streamCenterZ = pcz;
+        streamSettled = loaded < maxLoadsPerFrame && unloaded < maxUnloadsPerFrame;
+        return loaded + unloaded;
+    }
+
+    /**
+     * Carrega até maxColumns colunas ainda não carregadas a menos de viewRadius chunks de near (em colunas, a
+     * partir da do jogador), as mais próximas primeiro. Devolve quantas foram carregadas.
+     */
+    public int loadColumnsAround(Vector3f near, int maxColumns) {
+        if (!unbounded || near == null) return 0;
+        int pcx = Math.floorDiv((int) Math.floor(near.x), chunkSize);
+        int pcz = Math.floorDiv((int) Math.floor(near.z), chunkSize);
+        int side = 2 * viewRadius + 1;
+        // Chaves (distância² << 32 | posição no quadrado à volta do jogador), ordenadas da mais próxima para a mais longe
+        long[] keys = new long[side * side];
+        int n = 0;
+        for (int dx = -viewRadius; dx <= viewRadius; dx++) {
+            for (int dz = -viewRadius; dz <= viewRadius; dz++) {
+                int dist = dx * dx + dz * dz;
+                if (dist > viewRadius * viewRadius || loadedChunks.containsKey(ChunkMap.key(pcx + dx, 0, pcz + dz))) continue;
+                keys[n++] = ((long) dist << 32) | ((dx + viewRadius) * side + dz + viewRadius);
+            }
+        }
+        Arrays.sort(keys, 0, n);
+        int loaded = Math.min(n, maxColumns);
+        for (int i = 0; i < loaded; i++) {
+            int square = (int) keys[i];
+            loadColumn(pcx + square / side - viewRadius, pcz + square % side - viewRadius);
+        }
+        return loaded;
+    }
+
+    /**
+     * Descarrega até maxColumns colunas a mais de unloadRadius chunks de near, as mais longe primeiro, e esquece
+     * as decorações calculadas longe do jogador. Devolve quantas foram descarregadas.
+     */
+    public int unloadDistantColumns(Vector3f near, int maxColumns) {
+        if (!unbounded || near == null) return 0;
+        int pcx = Math.floorDiv((int) Math.floor(near.x), chunkSize);
+        int pcz = Math.floorDiv((int) Math.floor(near.z), chunkSize);
+        long limit = (long) unloadRadius * unloadRadius;
+        List<Chunk> far = new ArrayList<>();
+        for (Chunk c : loadedChunks.values()) {
+            if (c.getChunkY() != 0) continue; // uma por coluna
+            long dx = c.getChunkX() - pcx, dz = c.getChunkZ() - pcz;
+            if (dx * dx + dz * dz > limit) far.add(c);
+        }
+        far.sort((a, b) -> Long.compare(distance2(b, pcx, pcz), distance2(a, pcx, pcz)));
+        int unloaded = 0;
+        for (int i = 0; i < Math.min(far.size(), maxColumns); i++) {
+            if (unloadColumn(far.get(i).getChunkX(), far.get(i).getChunkZ())) unloaded++;
+        }
+
+        // As decorações só são precisas para gerar as colunas vizinhas das que podem voltar a ser carregadas
+        long decorationLimit = (long) (unloadRadius + 1) * (unloadRadius + 1);
+        decorationCache.keySet().removeIf(key -> {
+            long dx = ChunkMap.keyX(key) - pcx, dz = ChunkMap.keyZ(key) - pcz;
+            return dx * dx + dz * dz > decorationLimit;
+        });
+        return unloaded;
+    }
+
+    private static long distance2(Chunk c, int pcx, int pcz) {
+        long dx = c.getChunkX() - pcx, dz = c.getChunkZ() - pcz;
+        return dx * dx + dz * dz;
+    }
+
+    // Gera a coluna (cx, cz) e repõe os chunks dela que tinham sido alterados antes de ser descarregada
+    private void loadColumn(int cx, int cz) {
+        byte[][] cells = generateColumn(cx, cz);
+        for (int cy = 0; cy < chunkCountY; cy++) {
+            Chunk c = new Chunk(cx, cy, cz, offHeap);
+            int index = allocateIndex();
+            c.setWorldIndex(index);
+            chunksByIndex[index] = c;
+            loadedChunks.put(ChunkMap.key(cx, cy, cz), c);
+            node.attachChild(c.getNode());
+        }
+        commitColumn(cx, cz, cells);
+        streamSettled = false; // pode ter sido pedida fora do raio
+
+        for (int cy = 0; cy < chunkCountY; cy++) {
+            Chunk c = chunkIfLoaded(cx, cy, cz);
+            int index = chunkIndex(c);
+            coldChunks.touch(c, index);
+            savedModCount[index] = c.getModCount(); // conteúdo gerado, não precisa de ir para o save
+            GameSaveData stored = takeStoredChunk(cx, cy, cz);
+            if (stored != null) {
+                String key = cx + "," + cy + "," + cz;
+                applySavedChunk(c, stored.chunkVoxels.get(key), stored.chunkEdits.get(key));
+                // Se já estava gravado quando foi descarregado continua gravado
+                if (!unsavedStored.remove(key)) savedModCount[index] = c.getModCount();
+            } else if (!c.isEmpty()) {
+                markChunkAndNeighborsDirty(c); // a casca dos vizinhos contava esta coluna como ar
+            }
+        }
+    }
+
+    // O chunk guardado da coluna que vai ser carregada, lido do disco e esquecido de onde estava; null se não houver
+    private GameSaveData takeStoredChunk(int cx, int cy, int cz) {
+        String key = cx + "," + cy + "," + cz;
+        GameSaveData stored = new GameSaveData();
+        if (evictedChunks.contains(key)) {
+            try {
+                evictedChunks.remove(key, stored);
+            } catch (IOException e) {
+                System.out.println("Erro ao ler o chunk descarregado " + key + ": " + e.getMessage());
+                return null;
+            }
+            return stored;
+        }
+        if (!savedRegionKeys.remove(key)) return null;
+        readRegionChunk(savedRegions, cx, cy, cz, stored);
+        if (savedRegionKeys.isEmpty()) savedRegions = null; // liberta os mapeamentos
+        return stored;
+    }
+
+    /**
+     * Descarrega a coluna: os chunks alterados vão para evictedChunks (as diferenças, como num save) e os outros
+     * voltam a ser gerados quando o jogador regressar. Se a escrita no disco falhar a coluna fica carregada (false).
+     */
+    private boolean unloadColumn(int cx, int cz) {
+        for (int cy = 0; cy < chunkCountY; cy++) {
+            Chunk c = chunkIfLoaded(cx, cy, cz);
+            int index = chunkIndex(c);
+            if (pristine[index] == null) continue;
+            String key = cx + "," + cy + "," + cz;
+            WorldSnapshot diff = new WorldSnapshot(seed, generatorVersion, caveStep, true);
+            diff.add(c.snapshot(), pristine[index]);
+            GameSaveData data = new GameSaveData();
+            diff.writeTo(data);
+            if (!storeEvicted(key, data)) {
+                for (int y = 0; y < cy; y++) evictedChunks.discard(cx + "," + y + "," + cz);
+                return false;
+            }
+        }
+        for (int cy = 0; cy < chunkCountY; cy++) {
+            Chunk c = loadedChunks.remove(ChunkMap.key(cx, cy, cz));
+            int index = chunkIndex(c);
+            if (pristine[index] != null) {
+                if (c.getModCount() != savedModCount[index]) unsavedStored.add(cx + "," + cy + "," + cz);
+                pristine[index] = null;
+            }
+            mesher.cancel(c);
+            c.markDirty(); // uma malha deste chunk que ainda esteja na pool fica com uma revisão antiga e é descartada
+            c.clearMesh();
+            node.detachChild(c.getNode());
+            c.fill(VoxelPalette.AIR_ID); // liberta o slot fora do heap
+            if (physicsSpace != null) c.updatePhysics(physicsSpace, palette); // sem blocos: só retira o corpo
+            dirtyChunks.clear(index);
+            chunksByIndex[index] = null;
+            releaseIndex(index);
+        }
+        return true;
+    }
+
+    // Índice livre para um chunk carregado; os arrays por índice duplicam quando estão todos ocupados
+    private int allocateIndex() {
+        if (freeIndexCount > 0) return freeIndices[--freeIndexCount];
+        if (nextIndex == chunksByIndex.length) {
+            int capacity = chunksByIndex.length * 2;
+            chunksByIndex = Arrays.copyOf(chunksByIndex, capacity);
+            pristine = Arrays.copyOf(pristine, capacity);
+            savedModCount = Arrays.copyOf(savedModCount, capacity);
+            coldChunks.resize(capacity);
+        }
+        return nextIndex++;
+    }
+
+    private void releaseIndex(int index) {
+        if (freeIndexCount == freeIndices.length) freeIndices = Arrays.copyOf(freeIndices, freeIndices.length * 2);
+        freeIndices[freeIndexCount++] = index;
+    }
+
+    // Descarrega todas as colunas sem guardar nada (o mundo vai ser gerado de novo)
+    private void unloadAllColumns() {
+        Arrays.fill(pristine, null);
+        for (Chunk c : loadedChunks.values()) {
+            if (c.getChunkY() == 0) unloadColumn(c.getChunkX(), c.getChunkZ());
+        }
+        evictedChunks.clear();
+        savedRegions = null;
+        savedRegionKeys.clear();
+        unsavedStored.clear();
+        decorationCache.clear();
+        streamSettled = false;
+    }
+
+    public boolean isUnbounded() { return unbounded; }
+    public int getViewRadius() { return viewRadius; }
+    public int getUnloadRadius() { return unloadRadius; }
+
+    // O raio de descarga tem de ser maior do que o de carga, senão as colunas da fronteira nunca param
+    public void setViewRadius(int viewRadius, int unloadRadius) {
+        if (viewRadius < 1 || unloadRadius <= viewRadius) {
+            throw new IllegalArgumentException("Raios inválidos: " + viewRadius + ", " + unloadRadius);
+        }
+        this.viewRadius = viewRadius;
+        this.unloadRadius = unloadRadius;
+        streamSettled = false;
+    }
+
+    public void setStreamingLimits(int maxLoadsPerFrame, int maxUnloadsPerFrame) {
+        this.maxLoadsPerFrame = Math.max(1, maxLoadsPerFrame);
+        this.maxUnloadsPerFrame = Math.max(1, maxUnloadsPerFrame);
+        streamSettled = false;
+    }
+
+    public int getLoadedColumnCount() { return unbounded ? loadedChunks.size() / chunkCountY : chunkCountX * chunkCountZ; }
+    // Chunks alterados que estão guardados fora do mundo por a coluna deles estar descarregada
+    public int getStoredChunkCount() { return evictedChunks.size() + savedRegionKeys.size(); }
+    // Bytes do ficheiro dos chunks descarregados durante o jogo (ver EvictedChunkFile)
+    public long getEvictedChunkBytes() { return evictedChunks.getFileBytes(); }
+
     // --- Utilitários de Rendering e Física ---
 
     public int getTopSolidY(int x, int z) {
-        if (x < 0 || z < 0 || x >= sizeX || z >= sizeZ) return -1;
-        for (int y = sizeY - 1; y >= 0; y--) {
-            if (palette.get(getBlock(x, y, z)).isSolid()) return y;
+        if (!unbounded && (x < 0 || z < 0 || x >= sizeX || z >= sizeZ)) return -1;
+        int cx = Math.floorDiv(x, chunkSize), cz = Math.floorDiv(z, chunkSize);
+        if (!pendingColumns.isEmpty()) ensureGenerated(cx, cz);
+        if (unbounded && chunkIfLoaded(cx, 0, cz) == null) loadColumn(cx, cz);
+        for (int cy = chunkCountY - 1; cy >= 0; cy--) {
+            Chunk c = chunkIfLoaded(cx, cy, cz);
+            if (!pendingLoads.isEmpty()) ensureLoaded(chunkIndex(c));
+            coldChunks.touch(c, chunkIndex(c));
+            int top = Math.min(sizeY, (cy + 1) * chunkSize) - 1;
+            // Fast paths pela ocupação: salta chunks só de ar e responde logo nos uniformes sólidos
+            if (c.isEmpty()) continue;
+            if (c.isUniform()) {
+                if (isSolidId(c.getUniformId())) return top;
+                continue;
+            }
+            for (int y = top; y >= cy * chunkSize; y--) {
+                if (palette.get(getBlock(x, y, z)).isSolid()) return y;
+            }
         }
         return -1;
     }
 
+    // No centro do mapa (sem limites, na origem)
     public Vector3f getRecommendedSpawn() {
         int cx = sizeX / 2;
         int cz = sizeZ / 2;
@@ -425,76 +1617,181 @@ public class VoxelWorld {
         return new Vector3f(cx + 0.5f, ty + 3.0f, cz + 0.5f);
     }
 
-    private void initMaterials() {
-        Texture2D tex = ProcTextures.checker(128, 4, ColorRGBA.Gray, ColorRGBA.DarkGray);
-        materials.put(VoxelPalette.STONE_ID, makeLitTex(tex, 0.08f, 16f));
-    }
-
-    // Cria material iluminado com textura
-    private Material makeLitTex(Texture2D tex, float spec, float shininess) {
-        Material m = new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md");
-        m.setTexture("DiffuseMap", tex);
-        m.setBoolean("UseMaterialColors", true);
-        m.setColor("Diffuse", ColorRGBA.White);
-        m.setColor("Specular", ColorRGBA.White.mult(spec));
-        m.setFloat("Shininess", shininess);
-        applyRenderFlags(m);
-        return m;
-    }
-
-    // Aplica flags de renderização ao material
-    private void applyRenderFlags(Material m) {
-        m.getAdditionalRenderState().setFaceCullMode(culling ? RenderState.FaceCullMode.Back : RenderState.FaceCullMode.Off);
-        m.getAdditionalRenderState().setWireframe(wireframe);
-    }
-
     public void buildMeshes() {
         node.detachAllChildren();
-        for (int cx = 0; cx < chunkCountX; cx++) {
-            for (int cy = 0; cy < chunkCountY; cy++) {
-                for (int cz = 0; cz < chunkCountZ; cz++) {
-                    Chunk chunk = chunks[cx][cy][cz];
-                    chunk.buildMesh(assetManager, palette);
-                    node.attachChild(chunk.getNode());
-                }
-            }
+        long vertices = 0, triangles = 0, geometries = 0;
+        for (int i = 0; i < pristine.length; i++) {
+            Chunk chunk = chunkAt(i);
+            if (chunk == null) continue;
+            if (hasNoVisibleFaces(chunk)) chunk.clearMesh();
+            else chunk.buildMesh(materials, palette, snapshotPadded(chunk, paddedScratch), textureArrayMode);
+            node.attachChild(chunk.getNode());
+            vertices += chunk.getVertexCount();
+            triangles += chunk.getTriangleCount();
+            geometries += chunk.getGeometryCount();
         }
+        System.out.println("Malha do mundo: " + vertices + " vértices, " + triangles + " triângulos, " + geometries + " geometrias");
     }
 
     public void buildPhysics(PhysicsSpace space) {
         if (space == null) return;
-        for (int cx = 0; cx < chunkCountX; cx++) {
-            for (int cy = 0; cy < chunkCountY; cy++) {
-                for (int cz = 0; cz < chunkCountZ; cz++) {
-                    chunks[cx][cy][cz].updatePhysics(space, palette);
-                }
-            }
+        physicsSpace = space;
+        long boxes = 0;
+        for (int i = 0; i < pristine.length; i++) {
+            Chunk chunk = chunkAt(i);
+            if (chunk == null) continue;
+            chunk.updatePhysics(space, palette);
+            boxes += chunk.getCollisionBoxCount();
         }
+        System.out.println("Colisão: " + boxes + " caixas");
     }
 
-    public void rebuildDirtyChunks(PhysicsSpace physicsSpace) {
+    /**
+     * Processa a fila de chunks sujos durante no máximo rebuildBudgetMs: agenda a reconstrução dos
+     * chunks na pool de meshing (primeiro os que o jogador está a tocar, depois os mais próximos da
+     * câmara) e aplica as malhas que já terminaram. Deve ser chamado uma vez por frame na thread de update.
+     * Retorna o número de chunks cuja malha e física foram substituídas nesta chamada.
+     */
+    public int rebuildDirtyChunks(PhysicsSpace physicsSpace, Vector3f cameraPos, Vector3f playerPos) {
+        long deadline = System.nanoTime() + (long) (rebuildBudgetMs * 1_000_000L);
+        if (physicsSpace != null) this.physicsSpace = physicsSpace;
+
+        // 1. Agendar os chunks sujos por prioridade (snapshot tirado agora, malha construída em background)
+        int submitted = 0;
         int rebuilt = 0;
-        for (int cx = 0; cx < chunkCountX; cx++) {
-            for (int cy = 0; cy < chunkCountY; cy++) {
-                for (int cz = 0; cz < chunkCountZ; cz++) {
-                    Chunk chunk = chunks[cx][cy][cz];
-                    if (chunk.isDirty()) {
-                        chunk.buildMesh(assetManager, palette);
-                        chunk.updatePhysics(physicsSpace, palette);
-                        chunk.clearDirty();
-                        rebuilt++;
-                    }
+        if (!dirtyChunks.isEmpty()) {
+            for (long key : dirtyChunksByPriority(cameraPos, playerPos)) {
+                if (submitted > 0 && System.nanoTime() >= deadline) break;
+                int index = (int) key; // os 32 bits baixos da chave são o índice do chunk
+                ensureLoaded(index);
+                Chunk chunk = chunkAt(index);
+                coldChunks.touch(chunk, index);
+                chunk.clearDirty();
+                dirtyChunks.clear(index);
+                submitted++;
+                if (hasNoVisibleFaces(chunk)) {
+                    // Não há nada para construir: troca já, sem snapshot nem trabalho na pool
+                    mesher.cancel(chunk);
+                    chunk.clearMesh();
+                    chunk.updatePhysics(physicsSpace, palette);
+                    rebuilt++;
+                    continue;
                 }
+                mesher.submit(chunk, snapshotPadded(chunk, new byte[Chunk.PADDED_VOLUME]), textureArrayMode);
             }
         }
+
+        // 2. Trocar as malhas terminadas (as de revisões antigas são descartadas: ganha a edição mais recente)
+        Chunk.MeshData data;
+        int applied = 0;
+        while ((applied == 0 || System.nanoTime() < deadline) && (data = mesher.poll()) != null) {
+            Chunk chunk = data.getChunk();
+            if (data.getRevision() != chunk.getRevision()) continue;
+            chunk.applyMesh(data, materials, palette);
+            chunk.updatePhysics(physicsSpace, palette);
+            applied++;
+        }
+        rebuilt += applied;
         if (rebuilt > 0 && physicsSpace != null) physicsSpace.update(0);
+        return rebuilt;
+    }
+
+    /**
+     * True se o chunk não tem nenhuma face para desenhar, sem olhar para as células: ou só tem ar, ou é
+     * uniforme de um bloco sólido e os 6 vizinhos de face também (as faces só aparecem junto a não sólidos).
+     */
+    private boolean hasNoVisibleFaces(Chunk c) {
+        if (c.isEmpty()) return true;
+        if (!c.isUniform() || !isSolidId(c.getUniformId())) return false;
+        int cx = c.getChunkX(), cy = c.getChunkY(), cz = c.getChunkZ();
+        return isUniformSolid(cx - 1, cy, cz) && isUniformSolid(cx + 1, cy, cz)
+                && isUniformSolid(cx, cy - 1, cz) && isUniformSolid(cx, cy + 1, cz)
+                && isUniformSolid(cx, cy, cz - 1) && isUniformSolid(cx, cy, cz + 1);
+    }
+
+    // Fora do mundo (ou numa coluna descarregada) conta como ar (ver peekBlock), por isso não esconde faces
+    private boolean isUniformSolid(int cx, int cy, int cz) {
+        Chunk c = chunkIfLoaded(cx, cy, cz);
+        return c != null && c.isUniform() && isSolidId(c.getUniformId());
+    }
+
+    private boolean isSolidId(byte id) {
+        return id != VoxelPalette.AIR_ID && palette.get(id).isSolid();
+    }
+
+    // Chaves (prioridade << 32 | índice) dos chunks sujos, ordenadas da mais urgente para a menos urgente.
+    // Prioridade -1 para os chunks que o jogador toca, senão a distância² do centro do chunk à câmara.
+    private long[] dirtyChunksByPriority(Vector3f cameraPos, Vector3f playerPos) {
+        long[] keys = new long[dirtyChunks.cardinality()];
+        int n = 0;
+        for (int index = dirtyChunks.nextSetBit(0); index >= 0; index = dirtyChunks.nextSetBit(index + 1)) {
+            Chunk c = chunkAt(index);
+            int priority;
+            if (playerPos != null && touchesPlayer(c, playerPos)) {
+                priority = -1;
+            } else if (cameraPos != null) {
+                float dx = (c.getChunkX() + 0.5f) * chunkSize - cameraPos.x;
+                float dy = (c.getChunkY() + 0.5f) * chunkSize - cameraPos.y;
+                float dz = (c.getChunkZ() + 0.5f) * chunkSize - cameraPos.z;
+                priority = (int) Math.min(Integer.MAX_VALUE, dx * dx + dy * dy + dz * dz);
+            } else {
+                priority = 0;
+            }
+            keys[n++] = ((long) priority << 32) | index;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    // True se o chunk contém algum vóxel a menos de 1 bloco da caixa do jogador (pés em playerPos, ~2 de altura)
+    private boolean touchesPlayer(Chunk c, Vector3f playerPos) {
+        int minX = Math.floorDiv((int) Math.floor(playerPos.x - 1), chunkSize), maxX = Math.floorDiv((int) Math.floor(playerPos.x + 1), chunkSize);
+        int minY = Math.floorDiv((int) Math.floor(playerPos.y - 1), chunkSize), maxY = Math.floorDiv((int) Math.floor(playerPos.y + 3), chunkSize);
+        int minZ = Math.floorDiv((int) Math.floor(playerPos.z - 1), chunkSize), maxZ = Math.floorDiv((int) Math.floor(playerPos.z + 1), chunkSize);
+        return c.getChunkX() >= minX && c.getChunkX() <= maxX
+                && c.getChunkY() >= minY && c.getChunkY() <= maxY
+                && c.getChunkZ() >= minZ && c.getChunkZ() <= maxZ;
+    }
+
+    public int getCaveStep() { return caveStep; }
+    // Só afeta as próximas gerações; o passo vai no save para o terreno ser regenerado igual
+    public void setCaveStep(int caveStep) {
+        if (caveStep < 1 || caveStep > Chunk.SIZE) throw new IllegalArgumentException("Passo das cavernas inválido: " + caveStep);
+        this.caveStep = caveStep;
+    }
+    public int getGenerationThreads() { return generationThreads; }
+    public void setGenerationThreads(int generationThreads) { this.generationThreads = Math.max(1, generationThreads); }
+    public void setRebuildBudgetMs(float rebuildBudgetMs) { this.rebuildBudgetMs = rebuildBudgetMs; }
+
+    // Liga/desliga o modo texture array (requer Caps.TextureArray). Os chunks são refeitos nos próximos frames.
+    public void setTextureArrayMode(boolean enabled) {
+        if (enabled == textureArrayMode) return;
+        textureArrayMode = enabled;
+        for (int i = 0; i < pristine.length; i++) {
+            Chunk c = chunkAt(i);
+            if (c != null) markChunkDirty(c);
+        }
+    }
+
+    public boolean isTextureArrayMode() { return textureArrayMode; }
+    public int getDirtyChunkCount() { return dirtyChunks.cardinality(); }
+    public int getChunkCount() { return unbounded ? loadedChunks.size() : chunkCountX * chunkCountY * chunkCountZ; }
+    public int getSizeX() { return sizeX; }
+    public int getSizeY() { return sizeY; }
+    public int getSizeZ() { return sizeZ; }
+
+    // Pára as threads de meshing (chamado quando o mundo é destruído)
+    public void shutdown() {
+        mesher.shutdown();
+        evictedChunks.clear();
     }
 
     public void clearAllDirtyFlags() {
-        for (int cx = 0; cx < chunkCountX; cx++)
-            for (int cy = 0; cy < chunkCountY; cy++)
-                for (int cz = 0; cz < chunkCountZ; cz++)
-                    chunks[cx][cy][cz].clearDirty();
+        dirtyChunks.clear();
+        for (int i = 0; i < pristine.length; i++) {
+            Chunk c = chunkAt(i);
+            if (c != null) c.clearDirty();
+        }
     }
 
     // Raycast simples para vóxeis sólidos
@@ -561,6 +1858,7 @@ public class VoxelWorld {
     }
 
     private boolean inBounds(int x, int y, int z) {
+        if (unbounded) return y >= 0 && y < sizeY;
         return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
     }
 
@@ -582,14 +1880,22 @@ public class VoxelWorld {
         wireframe = !wireframe;
         culling = !culling;
         System.out.println("Debug Render: Lit=" + lit + " Wire=" + wireframe + " Cull=" + culling);
-        // Aplicar flags a todos os chunks (geometrias filhas)
-        node.depthFirstTraversal(spatial -> {
-            if (spatial instanceof Geometry g) applyRenderFlags(g.getMaterial());
-        });
+        // Os chunks partilham os materiais do registo: basta atualizar cada instância uma vez
+        materials.setRenderFlags(wireframe, culling);
     }
 
+    // Chamado a cada frame: comprime os chunks frios (ver ColdChunkCache)
+    public int updateColdChunks(float tpf) { return coldChunks.update(tpf, this); }
+    public ColdChunkCache getColdChunks() { return coldChunks; }
+    public Storage getStorage() { return offHeap != null ? Storage.OFF_HEAP : Storage.HEAP; }
+    public OffHeapChunkStore getOffHeapStore() { return offHeap; }
+
+    public void setEditListener(BlockEditListener listener) { this.editListener = listener; }
+
+    public long getSeed() { return seed; }
     public Node getNode() { return node; }
     public VoxelPalette getPalette() { return palette; }
+    public MaterialRegistry getMaterials() { return materials; }
 
     public static class Vector3i {
         public final int x, y, z;
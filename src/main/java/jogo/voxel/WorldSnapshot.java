@@ -0,0 +1,97 @@
+package jogo.voxel;
+
+import jogo.system.GameSaveData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chunks a guardar num save, tirados na thread de update com Chunk.snapshot (O(1) por chunk).
+ * As cópias e a comparação com o terreno gerado são feitas por writeTo, já na thread dos saves.
+ */
+public final class WorldSnapshot {
+    // Até quantas células alteradas um chunk é guardado como lista de edições em vez do chunk inteiro
+    private static final int SPARSE_EDIT_LIMIT = 256;
+
+    private final long seed;
+    private final int generatorVersion;
+    private final int caveStep;
+    private final boolean keepReverted;
+    private final List<ChunkSnapshot> chunks = new ArrayList<>();
+    private final List<byte[]> generated = new ArrayList<>(); // conteúdo gerado de cada chunk (null = guardar inteiro)
+    // Chunks que já estão em forma de save (os descarregados de um mundo sem limites), por "cx,cy,cz"
+    private final Map<String, byte[]> storedVoxels = new HashMap<>();
+    private final Map<String, int[]> storedEdits = new HashMap<>();
+    private int pendingChunks = 0;
+
+    // keepReverted: um chunk igual ao gerado vai como lista de edições vazia (autosave, para anular o que já estava no ficheiro)
+    WorldSnapshot(long seed, int generatorVersion, int caveStep, boolean keepReverted) {
+        this.seed = seed;
+        this.generatorVersion = generatorVersion;
+        this.caveStep = caveStep;
+        this.keepReverted = keepReverted;
+    }
+
+    void add(ChunkSnapshot chunk, byte[] generatedContent) {
+        chunks.add(chunk);
+        generated.add(generatedContent);
+    }
+
+    // Os arrays de um chunk guardado nunca mudam depois de guardados, por isso não são copiados
+    void addStored(String key, byte[] voxels, int[] edits) {
+        if (voxels != null) storedVoxels.put(key, voxels);
+        if (edits != null && (edits.length > 0 || keepReverted)) storedEdits.put(key, edits);
+    }
+
+    void setPendingChunks(int pendingChunks) { this.pendingChunks = pendingChunks; }
+
+    // Chunks alterados que não couberam no orçamento do autosave
+    public int getPendingChunks() { return pendingChunks; }
+    public int getChunkCount() { return chunks.size() + storedVoxels.size() + storedEdits.size(); }
+
+    // Passa os chunks para o objeto de save (chunkVoxels / chunkEdits); pode correr em qualquer thread
+    public void writeTo(GameSaveData data) {
+        data.worldSeed = seed;
+        data.generatorVersion = generatorVersion;
+        data.caveStep = caveStep;
+
+        byte[] current = new byte[Chunk.VOLUME];
+        for (int i = 0; i < chunks.size(); i++) {
+            ChunkSnapshot c = chunks.get(i);
+            byte[] base = generated.get(i);
+            if (base == null) {
+                byte[] chunkData = new byte[Chunk.VOLUME];
+                c.copyTo(chunkData);
+                data.chunkVoxels.put(c.key(), chunkData);
+            } else {
+                writeDiff(c, base, current, data);
+            }
+        }
+        data.chunkVoxels.putAll(storedVoxels);
+        data.chunkEdits.putAll(storedEdits);
+    }
+
+    // Diferenças do chunk em relação ao conteúdo gerado
+    private void writeDiff(ChunkSnapshot c, byte[] base, byte[] current, GameSaveData data) {
+        c.copyTo(current);
+        int changed = 0;
+        for (int j = 0; j < Chunk.VOLUME; j++) if (current[j] != base[j]) changed++;
+
+        if (changed == 0) { // voltou ao estado gerado
+            if (keepReverted) data.chunkEdits.put(c.key(), new int[0]);
+            return;
+        }
+        if (changed > SPARSE_EDIT_LIMIT) {
+            data.chunkVoxels.put(c.key(), current.clone());
+            return;
+        }
+        int[] edits = new int[changed];
+        int n = 0;
+        for (int j = 0; j < Chunk.VOLUME; j++) {
+            if (current[j] != base[j]) edits[n++] = GameSaveData.packEdit(j, current[j]);
+        }
+        data.chunkEdits.put(c.key(), edits);
+    }
+}
@@ -5,4 +5,8 @@ public class DirtBlockType extends SimpleBlockType {
     public DirtBlockType() {
         super("dirt", "Textures/DirtBlock.png", 1.0f);
     }
+
+    // Camada uniforme logo abaixo da relva
+    @Override
+    public boolean isGreedyMeshed() { return true; }
 }
\ No newline at end of file
@@ -5,4 +5,8 @@ public class GrassBlockType extends SimpleBlockType {
     public GrassBlockType() {
         super("grass", "Textures/GrassBlock.png", 1.0f);
     }
+
+    // As planícies de relva são a maior superfície visível do mapa
+    @Override
+    public boolean isGreedyMeshed() { return true; }
 }
\ No newline at end of file
@@ -5,4 +5,8 @@ public class SandBlockType extends SimpleBlockType {
     public SandBlockType() {
         super("sand", "Textures/SandBlock.png", 1.0f);
     }
+
+    // Anel de areia à volta do mapa, quase sempre plano
+    @Override
+    public boolean isGreedyMeshed() { return true; }
 }
\ No newline at end of file
@@ -27,6 +27,9 @@ public class SpikyBlockType extends VoxelBlockType {
         this.dropId = dropId;
     }
 
+    @Override
+    public String getLayerTexture() { return texturePath; }
+
     @Override
     public Material getMaterial(AssetManager assetManager) {
         Texture2D tex = (Texture2D) assetManager.loadTexture(texturePath);
@@ -5,4 +5,8 @@ public class StoneBlockType extends SimpleBlockType {
     public StoneBlockType() {
         super("stone", "Textures/StoneBlock.png", 6.0f);
     }
+
+    // Subsolo e paredes das cavernas
+    @Override
+    public boolean isGreedyMeshed() { return true; }
 }
\ No newline at end of file
@@ -18,6 +18,13 @@ public class TheRockBlockType extends VoxelBlockType {
         super("The Rock");
     }
 
+    // Camada de fundo do mundo (y = 0), totalmente plana
+    @Override
+    public boolean isGreedyMeshed() { return true; }
+
+    @Override
+    public String getLayerTexture() { return "Textures/TheRock.png"; }
+
     @Override
     public Material getMaterial(AssetManager assetManager) {
         // Carrega a textura do The Rock
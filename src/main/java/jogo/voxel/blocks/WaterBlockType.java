@@ -21,6 +21,9 @@ public class WaterBlockType extends VoxelBlockType {
     @Override
     public int getContactDamage() { return 50; } // Mata "afogado"
 
+    @Override
+    public boolean isGreedyMeshed() { return true; } // O oceano à volta do mapa é uma superfície enorme e plana
+
     @Override
     public Material getMaterial(AssetManager assetManager) {
         Texture2D tex = (Texture2D) assetManager.loadTexture("Textures/WaterBlock.png");
@@ -0,0 +1,44 @@
+#import "Common/ShaderLib/GLSLCompat.glsllib"
+#import "Common/ShaderLib/BlinnPhongLighting.glsllib"
+#import "Common/ShaderLib/Lighting.glsllib"
+
+uniform sampler2DArray m_DiffuseArray;
+uniform vec4 m_Diffuse;
+uniform vec4 m_Specular;
+uniform float m_Shininess;
+
+uniform vec4 g_LightData[NB_LIGHTS];
+
+varying vec3 texCoord;
+varying vec3 vNormal;
+varying vec3 vPos;
+varying vec3 AmbientSum;
+
+void main(){
+    vec4 diffuseColor = texture(m_DiffuseArray, texCoord);
+    vec3 viewDir = normalize(-vPos);
+    vec3 normal = normalize(vNormal);
+    if (!gl_FrontFacing) {
+        normal = -normal;
+    }
+
+    gl_FragColor.rgb = AmbientSum * diffuseColor.rgb;
+    for (int i = 0; i < NB_LIGHTS; i += 3) {
+        vec4 lightColor = g_LightData[i];
+        vec4 lightData1 = g_LightData[i + 1];
+        vec4 lightDir;
+        vec3 lightVec;
+        lightComputeDir(vPos, lightColor.w, lightData1, lightDir, lightVec);
+
+        float spotFallOff = 1.0;
+        if (lightColor.w > 1.0) {
+            spotFallOff = computeSpotFalloff(g_LightData[i + 2], lightVec);
+        }
+
+        lightDir.xyz = normalize(lightDir.xyz);
+        vec2 light = computeLighting(normal, viewDir, lightDir.xyz, lightDir.w * spotFallOff, m_Shininess);
+        gl_FragColor.rgb += m_Diffuse.rgb * lightColor.rgb * diffuseColor.rgb * vec3(light.x)
+                          + m_Specular.rgb * lightColor.rgb * vec3(light.y);
+    }
+    gl_FragColor.a = m_Diffuse.a * diffuseColor.a;
+}
@@ -0,0 +1,28 @@
+#import "Common/ShaderLib/GLSLCompat.glsllib"
+
+uniform mat4 g_WorldViewProjectionMatrix;
+uniform mat4 g_WorldViewMatrix;
+uniform mat3 g_NormalMatrix;
+
+uniform vec4 m_Ambient;
+uniform vec4 g_AmbientLightColor;
+
+attribute vec3 inPosition;
+attribute vec3 inNormal;
+attribute vec3 inTexCoord; // u, v, camada
+
+varying vec3 texCoord;
+varying vec3 vNormal;
+varying vec3 vPos;
+varying vec3 AmbientSum;
+
+void main(){
+    vec4 modelSpacePos = vec4(inPosition, 1.0);
+    gl_Position = g_WorldViewProjectionMatrix * modelSpacePos;
+    texCoord = inTexCoord;
+
+    // Iluminação em espaço de vista, como no SPLighting.vert
+    vPos = (g_WorldViewMatrix * modelSpacePos).xyz;
+    vNormal = normalize(g_NormalMatrix * inNormal);
+    AmbientSum = m_Ambient.rgb * g_AmbientLightColor.rgb;
+}
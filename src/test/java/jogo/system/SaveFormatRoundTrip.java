@@ -0,0 +1,399 @@
+package jogo.system;
+
+import jogo.gameobject.item.ItemStack;
+import jogo.voxel.Chunk;
+import jogo.voxel.VoxelPalette;
+import jogo.voxel.VoxelWorld;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Testes de ida e volta do formato dos saves (corre sem janela; qualquer falha termina com código de saída 1).
+ * 1. SaveFormat.write / read de todas as secções (PLYR, INVT, NPCS, MINI, META, WRLD, RGNS, CHNK, EDIT).
+ * 2. encodeChunk / decodeChunk e encodeEdits / decodeEdits em chunks uniformes, aleatórios e no pior caso do RLE
+ *    (um run por célula), também através das regiões (RegionStore).
+ * 3. Patches do autosave acrescentados ao save e lidos outra vez; um patch incompleto no fim é ignorado.
+ * 4. Saves truncados em qualquer byte ou corrompidos (cabeçalho, versão, runs, edições) lançam IOException.
+ * 5. Conversão de um save antigo (GameSaveData em GZIP) pelo LegacySaveMigrator.
+ */
+public class SaveFormatRoundTrip {
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("saveformat");
+        try {
+            sections();
+            codecs(dir);
+            patches();
+            corruption();
+            legacy(dir);
+        } finally {
+            deleteTree(dir);
+        }
+        System.out.println(failures == 0 ? "Todos os testes passaram" : failures + " testes falharam");
+        if (failures > 0) System.exit(1);
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "OK      " : "FALHOU  ") + name);
+        if (!ok) failures++;
+    }
+
+    // --- 1. Secções ---
+
+    private static void sections() throws IOException {
+        GameSaveData data = sample();
+        GameSaveData read = SaveFormat.read(ByteBuffer.wrap(write(data)));
+        check("PLYR", read.playerX == data.playerX && read.playerY == data.playerY && read.playerZ == data.playerZ
+                && read.rotYaw == data.rotYaw && read.rotPitch == data.rotPitch && read.health == data.health);
+        check("INVT", sameStacks(read.hotbar, data.hotbar) && sameStacks(read.mainInventory, data.mainInventory));
+        check("NPCS", sameNpcs(read.npcs, data.npcs));
+        check("MINI", read.miniGameTimer == data.miniGameTimer && read.miniGameTargetsHit == data.miniGameTargetsHit
+                && read.miniGameRunning == data.miniGameRunning);
+        check("META", read.playTime == data.playTime && read.savedAt == data.savedAt && read.worldSizeX == data.worldSizeX
+                && read.worldSizeY == data.worldSizeY && read.worldSizeZ == data.worldSizeZ);
+        check("WRLD", read.worldSeed == data.worldSeed && read.generatorVersion == data.generatorVersion && read.caveStep == data.caveStep);
+        check("RGNS", read.regionSize == data.regionSize && read.regionGeneration == data.regionGeneration);
+        check("CHNK (coordenadas int nos extremos)", sameChunks(read, data));
+
+        GameSaveData empty = new GameSaveData();
+        empty.hotbar = null;
+        empty.mainInventory = null;
+        empty.npcs = null;
+        GameSaveData readEmpty = SaveFormat.read(ByteBuffer.wrap(write(empty)));
+        check("save vazio (inventários null, sem NPCs nem chunks)", readEmpty.hotbar == null && readEmpty.mainInventory == null
+                && readEmpty.npcs.isEmpty() && readEmpty.chunkVoxels.isEmpty() && readEmpty.chunkEdits.isEmpty());
+    }
+
+    private static GameSaveData sample() {
+        GameSaveData data = new GameSaveData();
+        data.playerX = -1234.5f;
+        data.playerY = 37.25f;
+        data.playerZ = 98765.125f;
+        data.rotYaw = 1.5f;
+        data.rotPitch = -0.25f;
+        data.health = 17;
+        data.hotbar = new ItemStack[9];
+        data.hotbar[0] = new ItemStack(VoxelPalette.STONE_ID, 64);
+        data.hotbar[8] = new ItemStack((byte) -1, 1);
+        data.mainInventory = new ItemStack[27];
+        data.mainInventory[13] = new ItemStack(VoxelPalette.AIR_ID, 0);
+        data.npcs.add(new GameSaveData.NpcData("Sheep", 1f, 2f, 3f, 8));
+        data.npcs.add(new GameSaveData.NpcData("Zombie ção", -4f, 5.5f, -6f, 20)); // UTF com acentos
+        data.miniGameTimer = 42.5f;
+        data.miniGameTargetsHit = 7;
+        data.miniGameRunning = true;
+        data.playTime = 3600.5f;
+        data.savedAt = 1_700_000_000_123L;
+        data.worldSizeX = 256;
+        data.worldSizeY = 64;
+        data.worldSizeZ = 512;
+        data.worldSeed = Long.MIN_VALUE;
+        data.generatorVersion = VoxelWorld.GENERATOR_VERSION;
+        data.caveStep = 4;
+        data.regionSize = 8;
+        data.regionGeneration = 3;
+        Random random = new Random(1);
+        data.chunkVoxels.put("0,0,0", uniform(VoxelPalette.STONE_ID));
+        data.chunkVoxels.put("-2147483648,3,2147483647", randomChunk(random));
+        data.chunkVoxels.put("40000,0,-40000", worstCaseRle());
+        data.chunkEdits.put("-1,2,-3", randomEdits(random, 50));
+        data.chunkEdits.put("2147483647,0,-2147483648", new int[0]);
+        return data;
+    }
+
+    // --- 2. Codificação dos chunks ---
+
+    private static void codecs(Path dir) throws IOException {
+        Random random = new Random(2);
+        byte[][] chunks = { uniform(VoxelPalette.AIR_ID), uniform((byte) -1), randomChunk(random), worstCaseRle(), halfAndHalf() };
+        String[] names = { "uniforme (ar)", "uniforme (id 255)", "aleatório (256 ids)", "pior caso do RLE", "duas metades" };
+        for (int i = 0; i < chunks.length; i++) {
+            byte[] encoded = SaveFormat.encodeChunk(chunks[i]);
+            ByteBuffer in = ByteBuffer.wrap(encoded);
+            check("chunk " + names[i] + " (" + encoded.length + " bytes)",
+                    Arrays.equals(SaveFormat.decodeChunk(in), chunks[i]) && !in.hasRemaining());
+        }
+        check("chunk uniforme ocupa 2 bytes", SaveFormat.encodeChunk(uniform(VoxelPalette.STONE_ID)).length == 2);
+
+        int[][] edits = { new int[0], randomEdits(random, 1), randomEdits(random, 300), allCells() };
+        String[] editNames = { "vazia", "uma célula", "300 células", "todas as células" };
+        for (int i = 0; i < edits.length; i++) {
+            ByteBuffer in = ByteBuffer.wrap(SaveFormat.encodeEdits(edits[i]));
+            check("edições " + editNames[i], Arrays.equals(SaveFormat.decodeEdits(in), edits[i]) && !in.hasRemaining());
+        }
+
+        GameSaveData data = new GameSaveData();
+        for (int i = 0; i < chunks.length; i++) data.chunkVoxels.put((i * 9 - 20) + "," + i + "," + (-i * 7), chunks[i]);
+        for (int i = 0; i < edits.length; i++) data.chunkEdits.put(i + ",-1," + (i * 13), edits[i]);
+        GameSaveData expected = new GameSaveData();
+        expected.chunkVoxels.putAll(data.chunkVoxels);
+        expected.chunkEdits.putAll(data.chunkEdits);
+        RegionStore.write(dir, data);
+        RegionStore regions = RegionStore.open(dir, data.regionGeneration);
+        List<int[]> coords = new ArrayList<>();
+        for (String key : regions.chunkKeys()) {
+            String[] c = key.split(",");
+            coords.add(new int[] { Integer.parseInt(c[0]), Integer.parseInt(c[1]), Integer.parseInt(c[2]) });
+        }
+        GameSaveData read = new GameSaveData();
+        regions.readAll(coords, read);
+        check("regiões (RegionStore.write / readAll)", sameChunks(read, expected));
+    }
+
+    // --- 3. Patches do autosave ---
+
+    private static void patches() throws IOException {
+        GameSaveData base = sample();
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        SaveFormat.write(base, file);
+        int baseLength = file.size();
+
+        GameSaveData patch = new GameSaveData();
+        patch.playerX = 5f;
+        patch.health = 3;
+        patch.hotbar = new ItemStack[9];
+        patch.hotbar[4] = new ItemStack(VoxelPalette.STONE_ID, 12);
+        patch.npcs.add(new GameSaveData.NpcData("Sheep", 9f, 9f, 9f, 1));
+        patch.chunkVoxels.put("-1,2,-3", uniform(VoxelPalette.STONE_ID));   // era uma lista de edições
+        patch.chunkEdits.put("0,0,0", new int[0]);                          // volta ao estado gerado
+        patch.chunkEdits.put("7,7,-7", randomEdits(new Random(3), 10));     // chunk novo
+        int patchLength = SaveFormat.writePatch(patch, file);
+        check("writePatch devolve o tamanho escrito", file.size() == baseLength + patchLength);
+
+        GameSaveData second = new GameSaveData();
+        second.playerX = 6f;
+        second.chunkEdits.put("7,7,-7", new int[] { GameSaveData.packEdit(5, VoxelPalette.STONE_ID) });
+        SaveFormat.writePatch(second, file);
+
+        byte[] bytes = file.toByteArray();
+        GameSaveData read = SaveFormat.read(ByteBuffer.wrap(bytes));
+        check("patches aplicados por ordem (jogador)", read.playerX == 6f);
+        check("patch substitui edições por chunk inteiro", read.chunkVoxels.containsKey("-1,2,-3") && !read.chunkEdits.containsKey("-1,2,-3"));
+        check("patch com EDIT vazio volta ao estado gerado", !read.chunkVoxels.containsKey("0,0,0")
+                && Arrays.equals(read.chunkEdits.get("0,0,0"), new int[0]));
+        check("segundo patch substitui o primeiro", Arrays.equals(read.chunkEdits.get("7,7,-7"), second.chunkEdits.get("7,7,-7")));
+        check("chunks fora dos patches ficam", Arrays.equals(read.chunkVoxels.get("40000,0,-40000"), base.chunkVoxels.get("40000,0,-40000")));
+        check("WRLD e RGNS vêm do save base", read.worldSeed == base.worldSeed && read.regionGeneration == base.regionGeneration);
+        check("validLength com patches", SaveFormat.validLength(ByteBuffer.wrap(bytes)) == bytes.length);
+
+        // Jogo fechado a meio do segundo patch: o primeiro continua aplicado
+        byte[] cut = Arrays.copyOf(bytes, bytes.length - 5);
+        GameSaveData partial = SaveFormat.read(ByteBuffer.wrap(cut));
+        check("patch incompleto no fim é ignorado", partial.playerX == 5f
+                && Arrays.equals(partial.chunkEdits.get("7,7,-7"), patch.chunkEdits.get("7,7,-7"))
+                && SaveFormat.validLength(ByteBuffer.wrap(cut)) == baseLength + patchLength);
+    }
+
+    // --- 4. Ficheiros truncados ou corrompidos ---
+
+    private static void corruption() {
+        GameSaveData data = sample();
+        byte[] bytes;
+        try {
+            bytes = write(data);
+        } catch (IOException e) {
+            check("escrever o save de teste", false);
+            return;
+        }
+        int wrong = 0;
+        for (int length = 0; length < bytes.length; length++) {
+            if (!failsWithIOException(Arrays.copyOf(bytes, length))) wrong++;
+        }
+        check("save truncado em cada um dos " + bytes.length + " bytes lança IOException (" + wrong + " não)", wrong == 0);
+
+        byte[] magic = bytes.clone();
+        magic[0] = 'X';
+        check("cabeçalho desconhecido lança IOException", failsWithIOException(magic));
+
+        byte[] newer = bytes.clone();
+        ByteBuffer.wrap(newer).putShort(4, (short) (SaveFormat.VERSION + 1));
+        check("versão mais recente lança IOException", failsWithIOException(newer));
+
+        // Primeiro run do chunk do pior caso do RLE com comprimento 0
+        byte[] run = bytes.clone();
+        int payload = chunkPayload(run, SaveFormat.TAG_CHUNKS, "40000,0,-40000");
+        int paletteSize = Byte.toUnsignedInt(run[payload]) + 1;
+        run[payload + 1 + paletteSize] = 0;
+        run[payload + 2 + paletteSize] = 0;
+        check("run vazio lança IOException", failsWithIOException(run));
+
+        // Primeira edição com um índice fora do chunk
+        byte[] edit = bytes.clone();
+        int edits = chunkPayload(edit, SaveFormat.TAG_EDITS, "-1,2,-3");
+        ByteBuffer.wrap(edit).putShort(edits + 2, (short) Chunk.VOLUME);
+        check("edição fora do chunk lança IOException", failsWithIOException(edit));
+
+        // Offset de uma secção para lá do fim do ficheiro
+        byte[] section = bytes.clone();
+        ByteBuffer.wrap(section).putInt(8 + 4, bytes.length + 100);
+        check("secção fora do ficheiro lança IOException", failsWithIOException(section));
+    }
+
+    private static boolean failsWithIOException(byte[] file) {
+        try {
+            SaveFormat.read(ByteBuffer.wrap(file));
+            return false;
+        } catch (IOException e) {
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // Posição no ficheiro do payload do chunk com a chave dada na secção CHNK ou EDIT (tabela de coordenadas int)
+    private static int chunkPayload(byte[] file, int tag, String key) {
+        ByteBuffer in = ByteBuffer.wrap(file);
+        int sections = in.getShort(6);
+        for (int i = 0; i < sections; i++) {
+            int entry = 8 + i * 12;
+            if (in.getInt(entry) != tag) continue;
+            int start = in.getInt(entry + 4);
+            int count = in.getInt(start);
+            for (int c = 0; c < count; c++) {
+                int row = start + 4 + c * 20;
+                String rowKey = in.getInt(row) + "," + in.getInt(row + 4) + "," + in.getInt(row + 8);
+                if (rowKey.equals(key)) return start + in.getInt(row + 12);
+            }
+        }
+        throw new IllegalStateException("Chunk " + key + " não está no save de teste");
+    }
+
+    // --- 5. Saves antigos ---
+
+    private static void legacy(Path dir) throws IOException {
+        GameSaveData old = new GameSaveData();
+        old.playerX = 10f;
+        old.playerY = 20f;
+        old.playerZ = 30f;
+        old.health = 9;
+        old.hotbar = new ItemStack[9];
+        old.hotbar[2] = new ItemStack(VoxelPalette.STONE_ID, 5);
+        old.npcs.add(new GameSaveData.NpcData("Zombie", 1f, 1f, 1f, 4));
+        old.chunkVoxels = null; // os saves mais antigos só tinham modifiedChunks
+        old.chunkEdits = null;
+        byte[][][] voxels = new byte[Chunk.SIZE][Chunk.SIZE][Chunk.SIZE];
+        Random random = new Random(4);
+        for (byte[][] plane : voxels) for (byte[] row : plane) random.nextBytes(row);
+        old.modifiedChunks.put("1,2,3", voxels);
+
+        Path file = dir.resolve("legacy.dat");
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            out.writeObject(old);
+        }
+        check("save antigo reconhecido (GZIP)", LegacySaveMigrator.isLegacy(file));
+
+        GameSaveData migrated = LegacySaveMigrator.migrate(file);
+        byte[] converted = Files.readAllBytes(file);
+        check("convertido para o SaveFormat, com cópia .bak", SaveFormat.isSaveFormat(converted) && !LegacySaveMigrator.isLegacy(file)
+                && LegacySaveMigrator.isLegacy(dir.resolve("legacy.dat.bak")));
+
+        GameSaveData read = SaveFormat.read(ByteBuffer.wrap(converted));
+        byte[] flat = read.chunkVoxels.get("1,2,3");
+        boolean sameVoxels = flat != null;
+        for (int x = 0; sameVoxels && x < Chunk.SIZE; x++)
+            for (int y = 0; y < Chunk.SIZE; y++)
+                for (int z = 0; z < Chunk.SIZE; z++) sameVoxels &= flat[(x * Chunk.SIZE + y) * Chunk.SIZE + z] == voxels[x][y][z];
+        check("chunk byte[x][y][z] passado para o layout de Chunk.index", sameVoxels && migrated.modifiedChunks == null);
+        check("jogador, inventário e NPCs do save antigo", read.playerX == 10f && read.playerZ == 30f && read.health == 9
+                && sameStacks(read.hotbar, old.hotbar) && sameNpcs(read.npcs, old.npcs));
+    }
+
+    // --- Utilitários ---
+
+    private static byte[] write(GameSaveData data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SaveFormat.write(data, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] uniform(byte id) {
+        byte[] voxels = new byte[Chunk.VOLUME];
+        Arrays.fill(voxels, id);
+        return voxels;
+    }
+
+    private static byte[] randomChunk(Random random) {
+        byte[] voxels = new byte[Chunk.VOLUME];
+        random.nextBytes(voxels);
+        for (int id = 0; id < 256; id++) voxels[id * 16] = (byte) id; // a paleta inteira
+        return voxels;
+    }
+
+    // Nenhuma célula igual à seguinte: um run por célula
+    private static byte[] worstCaseRle() {
+        byte[] voxels = new byte[Chunk.VOLUME];
+        for (int i = 0; i < voxels.length; i++) voxels[i] = i % 2 == 0 ? VoxelPalette.STONE_ID : VoxelPalette.AIR_ID;
+        return voxels;
+    }
+
+    private static byte[] halfAndHalf() {
+        byte[] voxels = uniform(VoxelPalette.STONE_ID);
+        Arrays.fill(voxels, Chunk.VOLUME / 2, Chunk.VOLUME, VoxelPalette.AIR_ID);
+        return voxels;
+    }
+
+    private static int[] randomEdits(Random random, int n) {
+        int[] edits = new int[n];
+        for (int i = 0; i < n; i++) edits[i] = GameSaveData.packEdit(random.nextInt(Chunk.VOLUME), (byte) random.nextInt(256));
+        return edits;
+    }
+
+    private static int[] allCells() {
+        int[] edits = new int[Chunk.VOLUME];
+        for (int i = 0; i < edits.length; i++) edits[i] = GameSaveData.packEdit(i, (byte) (i * 31));
+        return edits;
+    }
+
+    private static boolean sameChunks(GameSaveData a, GameSaveData b) {
+        if (!a.chunkVoxels.keySet().equals(b.chunkVoxels.keySet()) || !a.chunkEdits.keySet().equals(b.chunkEdits.keySet())) return false;
+        for (Map.Entry<String, byte[]> entry : b.chunkVoxels.entrySet()) {
+            if (!Arrays.equals(a.chunkVoxels.get(entry.getKey()), entry.getValue())) return false;
+        }
+        for (Map.Entry<String, int[]> entry : b.chunkEdits.entrySet()) {
+            if (!Arrays.equals(a.chunkEdits.get(entry.getKey()), entry.getValue())) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameStacks(ItemStack[] a, ItemStack[] b) {
+        if (a == null || b == null) return a == b;
+        if (a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == null || b[i] == null) {
+                if (a[i] != b[i]) return false;
+            } else if (a[i].getId() != b[i].getId() || a[i].getAmount() != b[i].getAmount()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameNpcs(List<GameSaveData.NpcData> a, List<GameSaveData.NpcData> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            GameSaveData.NpcData x = a.get(i), y = b.get(i);
+            if (!Objects.equals(x.type, y.type) || x.x != y.x || x.y != y.y || x.z != y.z || x.health != y.health) return false;
+        }
+        return true;
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (var files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+}